@@ -0,0 +1,86 @@
+package com.example.concurrency.deadlock.bench;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import com.example.concurrency.deadlock.TransferBanks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+/**
+ * Throughput of the three deadlock-free ways to update two accounts at once ({@link TransferBanks}).
+ * Each operation picks two distinct accounts. A {@code readRatio} share of operations only audits both
+ * balances, and the rest move 1 from one account to the other. Fewer {@code accounts} means more
+ * overlapping pairs, so 1024, 32 and 2 are low, medium and high conflict. Every JMH thread shares one
+ * bank per trial; the thread count is JMH's own {@code -t} (4 by default), since a parameter cannot
+ * change it.
+ */
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx1g", "-Djfr.enabled=false"})
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 2)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(4)
+public class TransferBenchmark {
+
+    @Param
+    public TransferBanks.Strategy strategy;
+
+    @Param({"1024", "32", "2"})
+    public int accounts;
+
+    @Param({"0.9", "0.5"})
+    public double readRatio;
+
+    private TransferBanks.Bank bank;
+
+    @Setup(Level.Trial)
+    public void open() {
+        bank = TransferBanks.open(strategy, accounts);
+    }
+
+    /** A strategy that loses or creates money has no throughput worth reporting. */
+    @TearDown(Level.Trial)
+    public void checkConserved() {
+        long expected = accounts * TransferBanks.INITIAL_BALANCE;
+        if (bank.total() != expected) {
+            throw new IllegalStateException(strategy.label() + " total " + bank.total() + " != " + expected);
+        }
+    }
+
+    /** Per-thread random stream, seeded by thread index so runs are repeatable. */
+    @State(Scope.Thread)
+    public static class Picker {
+        SplittableRandom rnd;
+
+        @Setup(Level.Trial)
+        public void seed(ThreadParams thread) {
+            rnd = new SplittableRandom(42 + thread.getThreadIndex());
+        }
+    }
+
+    @Benchmark
+    public long transferOrAudit(Picker p) {
+        int a = p.rnd.nextInt(accounts);
+        int b = p.rnd.nextInt(accounts - 1);
+        if (b >= a) b++;
+        if (p.rnd.nextDouble() < readRatio) return bank.audit(a, b);
+        bank.transfer(a, b, 1);
+        return 0;
+    }
+}
@@ -1,5 +1,7 @@
 package com.example.concurrency.deadlock;
 
+import com.example.concurrency.metrics.ContinuousRecorder;
+import com.example.concurrency.metrics.PrometheusExporter;
 import java.lang.management.ThreadInfo;
 
 import java.util.concurrent.locks.Lock;
@@ -11,6 +13,13 @@ import java.util.concurrent.locks.ReentrantLock;
  */
 public class DeadlockDemo {
     public static void main(String[] args) throws InterruptedException {
+        PrometheusExporter.startIfConfigured();
+        try (ContinuousRecorder recorder = DeadlockDetector.startRecorder()) {
+            demo();
+        }
+    }
+
+    private static void demo() throws InterruptedException {
         Lock a = new ReentrantLock();
         Lock b = new ReentrantLock();
         Thread t1 = new Thread(() -> lockInOrder(a, b), "T1");
@@ -1,21 +1,63 @@
 package com.example.concurrency.deadlock;
 
+import com.example.concurrency.metrics.ContinuousRecorder;
+import com.example.concurrency.metrics.Counter;
+import com.example.concurrency.metrics.Gauge;
+import com.example.concurrency.metrics.MetricsRegistry;
+import com.example.concurrency.metrics.PrometheusExporter;
 import java.lang.management.LockInfo;
 import java.lang.management.ManagementFactory;
 import java.lang.management.MonitorInfo;
 import java.lang.management.ThreadInfo;
 import java.lang.management.ThreadMXBean;
 
-/** Deadlock detector utility using ThreadMXBean.findDeadlockedThreads(). */
+/**
+ * Deadlock detector utility using ThreadMXBean.findDeadlockedThreads().
+ * Every scan is also recorded in the shared {@link MetricsRegistry} (deadlock_* metrics).
+ * A scan that finds a cycle commits a {@link DeadlockEvent} and dumps the module's JFR ring buffer
+ * when one is running (on unless -Djfr.enabled=false, see {@link #startRecorder}).
+ */
 public final class DeadlockDetector {
     private DeadlockDetector() {}
 
+    private static final String MODULE = "deadlock-demo";
+    private static final MetricsRegistry REGISTRY = MetricsRegistry.global();
+    static final Counter SCANS = REGISTRY.counter("deadlock_scans_total", "Deadlock detector scans");
+    static final Counter DETECTIONS = REGISTRY.counter("deadlock_detections_total", "Scans that found deadlocked threads");
+    static final Gauge DEADLOCKED = REGISTRY.gauge("deadlock_threads", "Deadlocked threads at the last scan");
+
     /** Returns the deadlocked thread infos (empty if none). */
     public static ThreadInfo[] findDeadlocked() {
         ThreadMXBean bean = ManagementFactory.getThreadMXBean();
         long[] ids = bean.findDeadlockedThreads();
+        SCANS.inc();
+        DEADLOCKED.set(ids == null ? 0 : ids.length);
         if (ids == null || ids.length == 0) return new ThreadInfo[0];
-        return bean.getThreadInfo(ids, true, true);
+        DETECTIONS.inc();
+        ThreadInfo[] infos = bean.getThreadInfo(ids, true, true);
+        recordDetection(infos);
+        return infos;
+    }
+
+    /** Starts (or joins) the deadlock-demo JFR ring buffer; close it when the run ends. */
+    public static ContinuousRecorder startRecorder() {
+        return ContinuousRecorder.startIfConfigured(MODULE);
+    }
+
+    private static void recordDetection(ThreadInfo[] infos) {
+        StringBuilder names = new StringBuilder(), locks = new StringBuilder();
+        for (ThreadInfo ti : infos) {
+            if (ti == null) continue;
+            if (names.length() > 0) { names.append(", "); locks.append(", "); }
+            names.append(ti.getThreadName());
+            locks.append(ti.getLockName());
+        }
+        DeadlockEvent ev = new DeadlockEvent();
+        ev.threads = infos.length;
+        ev.threadNames = names.toString();
+        ev.locks = locks.toString();
+        ev.commit();
+        ContinuousRecorder.active(MODULE).dump("deadlock", infos.length + " threads: " + names);
     }
 
     /** Polls for a deadlock to appear within the timeout. */
@@ -32,6 +74,7 @@ public final class DeadlockDetector {
     public static boolean printIfAny(java.io.PrintStream out) {
         ThreadInfo[] infos = findDeadlocked();
         if (infos.length == 0) return false;
+        PrometheusExporter.writeIfConfigured();
         out.println("[DeadlockDetector] DEADLOCK SUSPECTS:");
         for (ThreadInfo ti : infos) {
             out.printf(" - id=%d name=%s state=%s%n", ti.getThreadId(), ti.getThreadName(), ti.getThreadState());
@@ -0,0 +1,18 @@
+package com.example.concurrency.deadlock;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/** A detector scan that found a lock cycle, recorded into JFR. */
+@Name("com.example.concurrency.Deadlock")
+@Label("Deadlock Detected")
+@Category({"Concurrency Demo", "Deadlocks"})
+@Description("Threads found in a deadlock cycle by DeadlockDetector")
+final class DeadlockEvent extends Event {
+    @Label("Thread Count") int threads;
+    @Label("Threads") String threadNames;
+    @Label("Waiting On") String locks;
+}
@@ -1,11 +1,17 @@
 package com.example.concurrency.deadlock;
 
+import com.example.concurrency.metrics.PrometheusExporter;
 import java.lang.management.ThreadInfo;
 
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReentrantLock;
 
-/** Two minimal fixes: consistent ordering and timed tryLock with backoff. */
+/**
+ * Three minimal fixes: consistent ordering, timed tryLock with backoff, and optimistic
+ * transactions over versioned cells ({@link Stm}) that hold no lock at all.
+ * {@link TransferBanks} runs each on two-account updates; the JMH {@code TransferBenchmark} in deadlock-demo-bench
+ * compares them under low, medium and high conflict.
+ */
 public class DeadlockFix {
     private static void printNoDeadlocksIfNone() {
         if (DeadlockDetector.findDeadlocked().length == 0) {
@@ -20,8 +26,10 @@ public class DeadlockFix {
     }
 
     public static void main(String[] args) throws InterruptedException {
+        PrometheusExporter.startIfConfigured();
         fixByOrdering();
         fixByTryLock();
+        fixByOptimistic();
     }
 
     /** Ensure both threads acquire locks in the same order. */
@@ -57,6 +65,29 @@ public class DeadlockFix {
         t1.join(); t2.join();
     }
 
+    /**
+     * Opposite-order transfers as {@link Stm} transactions: nothing is locked, a commit that
+     * overlaps another is re-run, so there is no wait cycle to form.
+     */
+    public static void fixByOptimistic() throws InterruptedException {
+        var a = new Stm.Ref<>(1_000L);
+        var b = new Stm.Ref<>(1_000L);
+        Thread t1 = new Thread(() -> transfers(a, b, 500), "stm-1");
+        Thread t2 = new Thread(() -> transfers(b, a, 500), "stm-2");
+        t1.start(); t2.start();
+        t1.join(); t2.join();
+        System.out.printf("[DeadlockFix] optimistic: a=%d b=%d (total %d)%n", a.get(), b.get(), a.get() + b.get());
+    }
+
+    private static void transfers(Stm.Ref<Long> from, Stm.Ref<Long> to, int count) {
+        for (int i = 0; i < count; i++) {
+            Stm.execute(tx -> {
+                tx.write(from, tx.read(from) - 1);
+                tx.write(to, tx.read(to) + 1);
+            });
+        }
+    }
+
     private static void cautious(ReentrantLock first, ReentrantLock second) {
         boolean done = false;
         while (!done) {
@@ -0,0 +1,227 @@
+package com.example.concurrency.deadlock;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Small optimistic STM: versioned cells committed with a lock-free multi-word CAS (MCAS).
+ * <p>
+ * A transaction reads cells, revalidating the earlier reads on each new one, and buffers its writes.
+ * A read-only transaction commits by re-checking what it read, so nothing is locked or CASed.
+ * An update commits through a descriptor. Every cell it read is CASed, in id order, from the box it was
+ * read as to the descriptor; one CAS on the status then decides the outcome, and each cell is released
+ * to its new box or back to the old one. A thread that meets another transaction's descriptor helps it
+ * finish instead of waiting on it. A conflict re-runs the body. No lock is taken anywhere, so there is
+ * nothing to deadlock on.
+ */
+public final class Stm {
+
+    private static final AtomicLong IDS = new AtomicLong();
+    private static final LongAdder COMMITS = new LongAdder();
+    private static final LongAdder RETRIES = new LongAdder();
+
+    private Stm() {}
+
+    /**
+     * Immutable committed value. Each commit installs a fresh box, so a cell never goes back to a box it
+     * held before (a failed commit restores the same box, which is no change); identity is the version check.
+     */
+    private record Box(Object value, long version) {}
+
+    /** Thrown inside a transaction when an earlier read is no longer current; caught by {@link #atomically}. */
+    private static final class Conflict extends RuntimeException {
+        static final Conflict INSTANCE = new Conflict();
+
+        private Conflict() {
+            super(null, null, false, false);
+        }
+    }
+
+    /** One transactional cell. */
+    public static final class Ref<T> {
+        final long id = IDS.getAndIncrement();
+        final AtomicReference<Object> slot; // Box, or an Mcas descriptor while a commit is in flight
+
+        public Ref(T initial) {
+            slot = new AtomicReference<>(new Box(initial, 0));
+        }
+
+        /** Latest committed value, read outside any transaction. */
+        @SuppressWarnings("unchecked")
+        public T get() {
+            return (T) box(this).value();
+        }
+
+        /** Number of commits that wrote this cell. */
+        public long version() {
+            return box(this).version();
+        }
+    }
+
+    /** Current box of a cell; finishes any commit found in it first. */
+    private static Box box(Ref<?> ref) {
+        while (true) {
+            Object o = ref.slot.get();
+            if (o instanceof Box b) return b;
+            ((Mcas) o).help();
+        }
+    }
+
+    /** Reads and buffered writes of one attempt; small parallel arrays, the write map only once something is written. */
+    public static final class Txn {
+        private Ref<?>[] refs = new Ref<?>[4];
+        private Box[] boxes = new Box[4];
+        private int size;
+        private Map<Ref<?>, Object> writes;
+
+        private Txn() {}
+
+        @SuppressWarnings("unchecked")
+        public <T> T read(Ref<T> ref) {
+            if (writes != null && writes.containsKey(ref)) return (T) writes.get(ref);
+            int i = indexOf(ref);
+            if (i >= 0) return (T) boxes[i].value();
+            Box b = box(ref);
+            // earlier reads unchanged up to now, so all reads hold together at the moment of this one
+            if (!valid()) throw Conflict.INSTANCE;
+            if (size == refs.length) {
+                refs = Arrays.copyOf(refs, size * 2);
+                boxes = Arrays.copyOf(boxes, size * 2);
+            }
+            refs[size] = ref;
+            boxes[size++] = b;
+            return (T) b.value();
+        }
+
+        public <T> void write(Ref<T> ref, T value) {
+            if (indexOf(ref) < 0) read(ref); // the commit needs the box it replaces
+            if (writes == null) writes = new HashMap<>(4);
+            writes.put(ref, value);
+        }
+
+        private int indexOf(Ref<?> ref) {
+            for (int i = 0; i < size; i++) if (refs[i] == ref) return i;
+            return -1;
+        }
+
+        private boolean valid() {
+            for (int i = 0; i < size; i++) {
+                if (box(refs[i]) != boxes[i]) return false;
+            }
+            return true;
+        }
+
+        private boolean commit() {
+            if (writes == null) return valid();
+            Ref<?>[] sorted = Arrays.copyOf(refs, size);
+            Box[] expected = Arrays.copyOf(boxes, size);
+            // insertion sort by id: transactions touch a handful of cells
+            for (int i = 1; i < size; i++) {
+                Ref<?> r = sorted[i];
+                Box b = expected[i];
+                int j = i - 1;
+                for (; j >= 0 && sorted[j].id > r.id; j--) {
+                    sorted[j + 1] = sorted[j];
+                    expected[j + 1] = expected[j];
+                }
+                sorted[j + 1] = r;
+                expected[j + 1] = b;
+            }
+            Box[] update = new Box[size];
+            for (int i = 0; i < size; i++) {
+                // cells only read are part of the commit too, unchanged, so a concurrent write to them fails it
+                update[i] = writes.containsKey(sorted[i])
+                        ? new Box(writes.get(sorted[i]), expected[i].version() + 1)
+                        : expected[i];
+            }
+            return new Mcas(sorted, expected, update).help();
+        }
+    }
+
+    /** Multi-word CAS descriptor; any thread can drive it to completion. */
+    private static final class Mcas {
+        static final int UNDECIDED = 0, SUCCEEDED = 1, FAILED = 2;
+
+        final Ref<?>[] refs; // sorted by id, so helpers never wait on each other in a cycle
+        final Box[] expected;
+        final Box[] update;
+        final AtomicInteger status = new AtomicInteger(UNDECIDED);
+
+        Mcas(Ref<?>[] refs, Box[] expected, Box[] update) {
+            this.refs = refs;
+            this.expected = expected;
+            this.update = update;
+        }
+
+        boolean help() {
+            if (status.get() == UNDECIDED) {
+                int outcome = SUCCEEDED;
+                acquire:
+                for (int i = 0; i < refs.length && status.get() == UNDECIDED; i++) {
+                    while (true) {
+                        Object o = refs[i].slot.get();
+                        if (o == this) break;
+                        if (o == expected[i]) {
+                            if (refs[i].slot.compareAndSet(o, this)) break;
+                        } else if (o instanceof Mcas other) {
+                            other.help();
+                        } else {
+                            outcome = FAILED;
+                            break acquire;
+                        }
+                    }
+                }
+                status.compareAndSet(UNDECIDED, outcome);
+            }
+            // a helper that installed this descriptor after the decision is undone here as well
+            boolean ok = status.get() == SUCCEEDED;
+            for (int i = 0; i < refs.length; i++) {
+                refs[i].slot.compareAndSet(this, ok ? update[i] : expected[i]);
+            }
+            return ok;
+        }
+    }
+
+    /** Runs {@code body} as one transaction, re-running it on conflict; exceptions abort without committing. */
+    public static <R> R atomically(Function<Txn, R> body) {
+        for (int attempt = 1; ; attempt++) {
+            Txn tx = new Txn();
+            try {
+                R result = body.apply(tx);
+                if (tx.commit()) {
+                    COMMITS.increment();
+                    return result;
+                }
+            } catch (Conflict ignored) {
+                // re-run below
+            }
+            RETRIES.increment();
+            if ((attempt & 15) == 0) Thread.yield(); else Thread.onSpinWait();
+        }
+    }
+
+    /** {@link #atomically} for bodies without a result. */
+    public static void execute(Consumer<Txn> body) {
+        atomically(tx -> {
+            body.accept(tx);
+            return null;
+        });
+    }
+
+    /** Committed transactions since start. */
+    public static long commits() {
+        return COMMITS.sum();
+    }
+
+    /** Re-runs after a conflict since start. */
+    public static long retries() {
+        return RETRIES.sum();
+    }
+}
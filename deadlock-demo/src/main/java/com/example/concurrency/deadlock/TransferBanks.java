@@ -0,0 +1,172 @@
+package com.example.concurrency.deadlock;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Banks that update two accounts at once, one for each deadlock-free strategy of {@link DeadlockFix}.
+ * <p>
+ * Ordering locks both accounts in id order. Try-lock takes them in call order and backs off when the
+ * second is busy. Optimistic runs each operation as an {@link Stm} transaction and takes no lock at all.
+ * A transfer moves money between the two accounts and an audit reads both balances, so the bank total
+ * never changes. The JMH {@code TransferBenchmark} in deadlock-demo-bench measures them against each other.
+ */
+public final class TransferBanks {
+
+    /** Opening balance of every account. */
+    public static final long INITIAL_BALANCE = 1_000;
+
+    private TransferBanks() {}
+
+    public enum Strategy {
+        ORDERING, TRY_LOCK, OPTIMISTIC;
+
+        public String label() {
+            return name().toLowerCase(Locale.ROOT).replace('_', '-');
+        }
+    }
+
+    /** Accounts that are safe to use from many threads. {@code retries} counts try-lock back-offs or STM re-runs. */
+    public interface Bank {
+        void transfer(int from, int to, long amount);
+
+        /** Sum of the two balances, read consistently. */
+        long audit(int a, int b);
+
+        /** Sum of every balance; stays {@code accounts * INITIAL_BALANCE} whatever ran before. */
+        long total();
+
+        long retries();
+    }
+
+    /** A fresh bank of {@code accounts} accounts, each holding {@link #INITIAL_BALANCE}. */
+    public static Bank open(Strategy strategy, int accounts) {
+        if (accounts < 2) throw new IllegalArgumentException("need at least 2 accounts, got " + accounts);
+        return switch (strategy) {
+            case ORDERING -> new LockBank(accounts, false);
+            case TRY_LOCK -> new LockBank(accounts, true);
+            case OPTIMISTIC -> new StmBank(accounts);
+        };
+    }
+
+    private static final class LockBank implements Bank {
+        final long[] balances;
+        final ReentrantLock[] locks;
+        final boolean tryLock;
+        final LongAdder backoffs = new LongAdder();
+
+        LockBank(int accounts, boolean tryLock) {
+            balances = new long[accounts];
+            locks = new ReentrantLock[accounts];
+            for (int i = 0; i < accounts; i++) {
+                balances[i] = INITIAL_BALANCE;
+                locks[i] = new ReentrantLock();
+            }
+            this.tryLock = tryLock;
+        }
+
+        /** Holds both locks while {@code body} runs. */
+        private long withBoth(int a, int b, LongSupplier body) {
+            if (!tryLock) {
+                ReentrantLock first = locks[Math.min(a, b)], second = locks[Math.max(a, b)];
+                first.lock();
+                try {
+                    second.lock();
+                    try {
+                        return body.getAsLong();
+                    } finally {
+                        second.unlock();
+                    }
+                } finally {
+                    first.unlock();
+                }
+            }
+            while (true) {
+                if (locks[a].tryLock()) {
+                    try {
+                        if (locks[b].tryLock()) {
+                            try {
+                                return body.getAsLong();
+                            } finally {
+                                locks[b].unlock();
+                            }
+                        }
+                    } finally {
+                        locks[a].unlock();
+                    }
+                }
+                backoffs.increment();
+                LockSupport.parkNanos(1_000 + (System.nanoTime() & 0x3FF));
+            }
+        }
+
+        @Override public void transfer(int from, int to, long amount) {
+            withBoth(from, to, () -> {
+                balances[from] -= amount;
+                balances[to] += amount;
+                return 0;
+            });
+        }
+
+        @Override public long audit(int a, int b) {
+            return withBoth(a, b, () -> balances[a] + balances[b]);
+        }
+
+        @Override public long total() {
+            long sum = 0;
+            for (int i = 0; i < balances.length; i++) {
+                locks[i].lock();
+                try {
+                    sum += balances[i];
+                } finally {
+                    locks[i].unlock();
+                }
+            }
+            return sum;
+        }
+
+        @Override public long retries() {
+            return backoffs.sum();
+        }
+    }
+
+    private static final class StmBank implements Bank {
+        final List<Stm.Ref<Long>> balances = new ArrayList<>();
+        final long retriesAtStart;
+
+        StmBank(int accounts) {
+            for (int i = 0; i < accounts; i++) balances.add(new Stm.Ref<>(INITIAL_BALANCE));
+            retriesAtStart = Stm.retries();
+        }
+
+        @Override public void transfer(int from, int to, long amount) {
+            Stm.Ref<Long> a = balances.get(from), b = balances.get(to);
+            Stm.execute(tx -> {
+                tx.write(a, tx.read(a) - amount);
+                tx.write(b, tx.read(b) + amount);
+            });
+        }
+
+        @Override public long audit(int a, int b) {
+            Stm.Ref<Long> ra = balances.get(a), rb = balances.get(b);
+            return Stm.atomically(tx -> tx.read(ra) + tx.read(rb));
+        }
+
+        @Override public long total() {
+            return Stm.atomically(tx -> {
+                long sum = 0;
+                for (Stm.Ref<Long> r : balances) sum += tx.read(r);
+                return sum;
+            });
+        }
+
+        @Override public long retries() {
+            return Stm.retries() - retriesAtStart; // process-wide counter: only meaningful with one bank running
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.example.concurrency.deadlock;
 
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -77,4 +78,37 @@ public class DeadlockDemoSmokeTest {
         // (We don't assert absolute zero because the demo test may have left daemon deadlocked threads alive.)
         assertEquals(baseline, after, "fix variants must not introduce new deadlocks");
     }
+
+    @Test
+    @DisplayName("Every detector scan is counted in the shared metrics registry")
+    void scansAreRecorded() {
+        long scans = DeadlockDetector.SCANS.get();
+        int found = DeadlockDetector.findDeadlocked().length;
+        assertEquals(scans + 1, DeadlockDetector.SCANS.get());
+        assertEquals(found, DeadlockDetector.DEADLOCKED.get());
+    }
+
+    @Test
+    @DisplayName("A detected deadlock dumps the JFR ring buffer with a deadlock event")
+    void deadlockDumpsRecording(@org.junit.jupiter.api.io.TempDir java.nio.file.Path dir) throws Exception {
+        System.setProperty("jfr.enabled", "true");
+        System.setProperty("jfr.dir", dir.toString());
+        try {
+            DeadlockDemo.main(new String[0]);
+            java.util.List<java.nio.file.Path> dumps;
+            try (var files = java.nio.file.Files.list(dir)) {
+                dumps = files.toList();
+            }
+            assertEquals(1, dumps.size(), dumps.toString());
+            assertTrue(dumps.get(0).getFileName().toString().startsWith("deadlock-demo-deadlock-"));
+            var events = jdk.jfr.consumer.RecordingFile.readAllEvents(dumps.get(0)).stream()
+                    .filter(e -> e.getEventType().getName().equals("com.example.concurrency.Deadlock"))
+                    .toList();
+            assertFalse(events.isEmpty());
+            assertTrue(events.get(0).getInt("threads") >= 2);
+        } finally {
+            System.setProperty("jfr.enabled", "false"); // back to the build's default for tests
+            System.clearProperty("jfr.dir");
+        }
+    }
 }
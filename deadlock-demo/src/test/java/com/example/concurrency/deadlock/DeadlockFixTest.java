@@ -19,4 +19,10 @@ public class DeadlockFixTest {
     void tryLockCompletes() {
         assertTimeoutPreemptively(Duration.ofSeconds(2), () -> DeadlockFix.fixByTryLock());
     }
+
+    @Test
+    @DisplayName("Optimistic transactions complete under 2s")
+    void optimisticCompletes() {
+        assertTimeoutPreemptively(Duration.ofSeconds(2), () -> DeadlockFix.fixByOptimistic());
+    }
 }
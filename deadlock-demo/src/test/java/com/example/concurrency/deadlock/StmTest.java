@@ -0,0 +1,134 @@
+package com.example.concurrency.deadlock;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/** Optimistic multi-cell transactions: atomic commits, consistent reads, and the transfer banks. */
+public class StmTest {
+
+    @Test
+    @DisplayName("Concurrent opposite-order transfers keep the total and every commit lands")
+    void transfersAreAtomic() throws Exception {
+        List<Stm.Ref<Long>> accounts = new ArrayList<>();
+        for (int i = 0; i < 3; i++) accounts.add(new Stm.Ref<>(100L));
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 6; t++) {
+            int from = t % 3, to = (t + 1 + t / 3) % 3;
+            threads.add(Thread.ofPlatform().start(() -> {
+                for (int i = 0; i < 2_000; i++) {
+                    Stm.execute(tx -> {
+                        tx.write(accounts.get(from), tx.read(accounts.get(from)) - 1);
+                        tx.write(accounts.get(to), tx.read(accounts.get(to)) + 1);
+                    });
+                }
+            }));
+        }
+        for (Thread t : threads) t.join();
+        assertEquals(300L, accounts.stream().mapToLong(Stm.Ref::get).sum());
+        long writes = accounts.stream().mapToLong(Stm.Ref::version).sum();
+        assertEquals(6 * 2_000 * 2, writes, "each transfer writes two cells exactly once");
+    }
+
+    @Test
+    @DisplayName("Readers never see a half-applied transfer")
+    void readersSeeConsistentSnapshots() throws Exception {
+        var a = new Stm.Ref<>(500L);
+        var b = new Stm.Ref<>(500L);
+        AtomicBoolean stop = new AtomicBoolean();
+        AtomicLong torn = new AtomicLong();
+        Thread writer = Thread.ofPlatform().start(() -> {
+            for (int i = 0; i < 20_000; i++) {
+                Stm.execute(tx -> {
+                    tx.write(a, tx.read(a) - 1);
+                    tx.write(b, tx.read(b) + 1);
+                });
+            }
+            stop.set(true);
+        });
+        Thread reader = Thread.ofPlatform().start(() -> {
+            while (!stop.get()) {
+                // checked inside the body too: an attempt must not observe a torn state even before it validates
+                long sum = Stm.atomically(tx -> {
+                    long s = tx.read(a) + tx.read(b);
+                    if (s != 1_000L) torn.incrementAndGet();
+                    return s;
+                });
+                if (sum != 1_000L) torn.incrementAndGet();
+            }
+        });
+        writer.join();
+        reader.join();
+        assertEquals(0, torn.get());
+        assertEquals(500L - 20_000L, a.get());
+    }
+
+    @Test
+    @DisplayName("An exception aborts the transaction without writing anything")
+    void exceptionAborts() {
+        var a = new Stm.Ref<>("before");
+        assertThrows(IllegalStateException.class, () -> Stm.execute(tx -> {
+            tx.write(a, "after");
+            assertEquals("after", tx.read(a), "a transaction reads its own writes");
+            throw new IllegalStateException("boom");
+        }));
+        assertEquals("before", a.get());
+        assertEquals(0, a.version());
+    }
+
+    @Test
+    @DisplayName("A write to a cell the transaction only read forces a re-run")
+    void readSetIsValidated() {
+        var src = new Stm.Ref<>(1);
+        var dst = new Stm.Ref<>(0);
+        AtomicLong runs = new AtomicLong();
+        Stm.execute(tx -> {
+            int v = tx.read(src);
+            if (runs.incrementAndGet() == 1) {
+                // another committer changes src between this attempt's read and its commit
+                Thread other = Thread.ofPlatform().start(() -> Stm.execute(t2 -> t2.write(src, 2)));
+                try {
+                    other.join();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+            tx.write(dst, v);
+        });
+        assertEquals(2, runs.get());
+        assertEquals(2, dst.get(), "the commit used the current value of src");
+    }
+
+    @Test
+    @DisplayName("Every transfer bank conserves money under concurrent transfers and audits")
+    void banksConserveMoney() {
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            for (int accounts : new int[]{64, 2}) {
+                for (TransferBanks.Strategy s : TransferBanks.Strategy.values()) {
+                    TransferBanks.Bank bank = TransferBanks.open(s, accounts);
+                    List<Thread> workers = new ArrayList<>();
+                    for (int t = 0; t < 4; t++) {
+                        java.util.SplittableRandom rnd = new java.util.SplittableRandom(7 + t);
+                        workers.add(Thread.ofPlatform().start(() -> {
+                            for (int i = 0; i < 2_000; i++) {
+                                int a = rnd.nextInt(accounts), b = rnd.nextInt(accounts - 1);
+                                if (b >= a) b++;
+                                if (rnd.nextBoolean()) bank.transfer(a, b, 1);
+                                else assertTrue(bank.audit(a, b) >= 0);
+                            }
+                        }));
+                    }
+                    for (Thread w : workers) w.join();
+                    assertEquals(accounts * TransferBanks.INITIAL_BALANCE, bank.total(), s.label() + " at " + accounts + " accounts");
+                }
+            }
+        });
+        assertThrows(IllegalArgumentException.class, () -> TransferBanks.open(TransferBanks.Strategy.OPTIMISTIC, 1));
+    }
+}
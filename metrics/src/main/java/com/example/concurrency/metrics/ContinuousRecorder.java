@@ -0,0 +1,153 @@
+package com.example.concurrency.metrics;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import jdk.jfr.Category;
+import jdk.jfr.Configuration;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Recording;
+
+/**
+ * Always-on JFR ring buffer per module, dumped to disk when a module's threshold fires.
+ * <p>
+ * Recording is on by default. Pass -Djfr.enabled=false to opt out, or run on a JVM without JFR; either
+ * way {@link #startIfConfigured} returns a no-op recorder. The buffer keeps the last
+ * -Djfr.max.age.seconds (60) or -Djfr.max.size.mb (64) of events with the -Djfr.settings profile
+ * ("default", about 1% overhead).
+ * <p>
+ * {@link #dump} writes {@code <module>-<reason>-<time>.jfr} to -Djfr.dir (tmpdir/jfr). It dumps at most
+ * once per -Djfr.dump.min.interval.millis (30000) per module, so a saturated runner does not flood the
+ * disk. Runners start the recorder and close it; nested runs of one module share the recording, which
+ * is reference counted.
+ */
+public final class ContinuousRecorder implements AutoCloseable {
+
+    /** Marks why a dump was taken; committed right before the dump so it is in the file. */
+    @Name("com.example.concurrency.Incident")
+    @Label("Incident")
+    @Category({"Concurrency Demo", "Incidents"})
+    @Description("A threshold fired and the recording was dumped")
+    static final class IncidentEvent extends Event {
+        @Label("Module") String module;
+        @Label("Reason") String reason;
+        @Label("Detail") String detail;
+    }
+
+    private static final ContinuousRecorder DISABLED = new ContinuousRecorder("disabled", null);
+    private static final Map<String, ContinuousRecorder> ACTIVE = new HashMap<>();
+    private static final DateTimeFormatter STAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+
+    private final String module;
+    private final Recording recording;
+    private final AtomicInteger dumps = new AtomicInteger();
+    private int users = 1; // guarded by ACTIVE
+    private long lastDumpNanos;
+    private boolean dumped;
+
+    private ContinuousRecorder(String module, Recording recording) {
+        this.module = module;
+        this.recording = recording;
+    }
+
+    /** Starts (or joins) {@code module}'s ring buffer unless -Djfr.enabled=false or JFR is missing; a no-op recorder then. */
+    public static ContinuousRecorder startIfConfigured(String module) {
+        if (!enabledByConfig() || !FlightRecorder.isAvailable()) return DISABLED;
+        synchronized (ACTIVE) {
+            ContinuousRecorder running = ACTIVE.get(module);
+            if (running != null) {
+                running.users++;
+                return running;
+            }
+            try {
+                Recording r = new Recording(Configuration.getConfiguration(System.getProperty("jfr.settings", "default")));
+                r.setName("ring-" + module);
+                r.setToDisk(true);
+                r.setMaxAge(Duration.ofSeconds(Long.getLong("jfr.max.age.seconds", 60L)));
+                r.setMaxSize(Long.getLong("jfr.max.size.mb", 64L) * 1024 * 1024);
+                r.start();
+                ContinuousRecorder rec = new ContinuousRecorder(module, r);
+                ACTIVE.put(module, rec);
+                return rec;
+            } catch (IOException | ParseException | IllegalStateException | SecurityException e) {
+                System.err.println("[Recorder] JFR unavailable for " + module + ": " + e);
+                return DISABLED;
+            }
+        }
+    }
+
+    /** False only for an explicit -Djfr.enabled=false: recording is the default. */
+    static boolean enabledByConfig() {
+        return Boolean.parseBoolean(System.getProperty("jfr.enabled", "true").trim());
+    }
+
+    /** The running recorder of {@code module}, or a no-op one; for detectors that do not own a run. */
+    public static ContinuousRecorder active(String module) {
+        synchronized (ACTIVE) {
+            return ACTIVE.getOrDefault(module, DISABLED);
+        }
+    }
+
+    public boolean enabled() {
+        return recording != null;
+    }
+
+    /** Dumps written by this recorder so far. */
+    public int dumps() {
+        return dumps.get();
+    }
+
+    /**
+     * Dumps the ring buffer because {@code reason} fired; returns the file, or null when disabled,
+     * rate limited or the dump failed.
+     */
+    public Path dump(String reason, String detail) {
+        if (recording == null) return null;
+        long minGap = Duration.ofMillis(Long.getLong("jfr.dump.min.interval.millis", 30_000L)).toNanos();
+        synchronized (this) {
+            long now = System.nanoTime();
+            if (dumped && now - lastDumpNanos < minGap) return null;
+            dumped = true;
+            lastDumpNanos = now;
+        }
+        IncidentEvent e = new IncidentEvent();
+        e.module = module;
+        e.reason = reason;
+        e.detail = detail;
+        e.commit();
+        try {
+            Path dir = Path.of(System.getProperty("jfr.dir", Path.of(System.getProperty("java.io.tmpdir"), "jfr").toString()));
+            Files.createDirectories(dir);
+            Path file = dir.resolve(module + "-" + reason + "-" + LocalDateTime.now().format(STAMP) + ".jfr");
+            recording.dump(file);
+            dumps.incrementAndGet();
+            System.out.println("[Recorder] " + module + " " + reason + " (" + detail + ") -> " + file);
+            return file;
+        } catch (IOException | IllegalStateException ex) {
+            System.err.println("[Recorder] dump failed for " + module + ": " + ex);
+            return null;
+        }
+    }
+
+    /** Leaves the recording; the last user stops it and discards the ring buffer. */
+    @Override
+    public void close() {
+        if (recording == null) return;
+        synchronized (ACTIVE) {
+            if (--users > 0) return;
+            ACTIVE.remove(module, this);
+        }
+        recording.close();
+    }
+}
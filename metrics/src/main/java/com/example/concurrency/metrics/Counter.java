@@ -0,0 +1,35 @@
+package com.example.concurrency.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/** Monotonic counter on a {@link LongAdder}: a few ns per increment, no contention between writers. */
+public final class Counter extends Metric {
+    private final LongAdder value = new LongAdder();
+
+    Counter(String name, String help, String labels) {
+        super(name, help, labels);
+    }
+
+    public void inc() {
+        value.increment();
+    }
+
+    /** Adds {@code n}; negative values are ignored (counters never go down). */
+    public void add(long n) {
+        if (n > 0) value.add(n);
+    }
+
+    public long get() {
+        return value.sum();
+    }
+
+    @Override
+    String type() {
+        return "counter";
+    }
+
+    @Override
+    void appendSamples(StringBuilder out) {
+        out.append(name()).append(braces(labels())).append(' ').append(get()).append('\n');
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.concurrency.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Point-in-time value: either set by the owner ({@link #set}, {@link #add}) or read from a
+ * supplier at scrape time, so a queue depth costs nothing until someone looks.
+ */
+public final class Gauge extends Metric {
+    private final AtomicLong value = new AtomicLong();
+    private volatile LongSupplier source;
+
+    Gauge(String name, String help, String labels) {
+        super(name, help, labels);
+    }
+
+    public void set(long v) {
+        value.set(v);
+    }
+
+    public void add(long delta) {
+        value.addAndGet(delta);
+    }
+
+    /** Reads the gauge from {@code s} from now on (null goes back to the set value). */
+    public void bind(LongSupplier s) {
+        this.source = s;
+    }
+
+    public long get() {
+        LongSupplier s = source;
+        return s != null ? s.getAsLong() : value.get();
+    }
+
+    @Override
+    String type() {
+        return "gauge";
+    }
+
+    @Override
+    void appendSamples(StringBuilder out) {
+        out.append(name()).append(braces(labels())).append(' ').append(get()).append('\n');
+    }
+}
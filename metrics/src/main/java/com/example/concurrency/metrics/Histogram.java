@@ -0,0 +1,107 @@
+package com.example.concurrency.metrics;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free fixed-bucket histogram, exported as a Prometheus histogram.
+ * values are raw longs (nanos for timers); {@code scale} converts them on export (1e-9 -> seconds)
+ * recording is a binary search over ~16 bounds plus two atomic adds; memory never grows
+ */
+public final class Histogram extends Metric {
+
+    /** Timer buckets in nanos, 100us .. 10s. */
+    static final long[] DURATION_NANOS = {
+            100_000L, 250_000L, 500_000L,
+            1_000_000L, 2_500_000L, 5_000_000L,
+            10_000_000L, 25_000_000L, 50_000_000L,
+            100_000_000L, 250_000_000L, 500_000_000L,
+            1_000_000_000L, 2_500_000_000L, 5_000_000_000L, 10_000_000_000L
+    };
+
+    private final long[] bounds;
+    private final double scale;
+    private final AtomicLongArray counts; // last slot is +Inf
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0L);
+
+    Histogram(String name, String help, String labels, long[] bounds, double scale) {
+        super(name, help, labels);
+        long[] b = bounds.clone();
+        Arrays.sort(b);
+        this.bounds = b;
+        this.scale = scale;
+        this.counts = new AtomicLongArray(b.length + 1);
+    }
+
+    /** Records one value in raw units; negative values count as 0. */
+    public void record(long v) {
+        if (v < 0) v = 0;
+        int i = Arrays.binarySearch(bounds, v);
+        counts.incrementAndGet(i >= 0 ? i : -i - 1); // first bound >= v ("le")
+        sum.add(v);
+        max.accumulate(v);
+    }
+
+    /** Records the time since {@code startNanos} (a {@link System#nanoTime} reading). */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    public long count() {
+        long n = 0;
+        for (int i = 0; i < counts.length(); i++) n += counts.get(i);
+        return n;
+    }
+
+    /** Sum of recorded values in raw units. */
+    public long sum() {
+        return sum.sum();
+    }
+
+    /** Largest recorded value in raw units (exact); 0 when empty. */
+    public long max() {
+        return max.get();
+    }
+
+    /**
+     * Raw value at quantile {@code q}: the upper bound of the bucket holding that rank, capped at
+     * the max (so the +Inf bucket reports the max). 0 when empty.
+     */
+    public long quantile(double q) {
+        long n = count();
+        if (n == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(q * n));
+        long seen = 0;
+        for (int i = 0; i < bounds.length; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) return Math.min(bounds[i], max());
+        }
+        return max();
+    }
+
+    @Override
+    String type() {
+        return "histogram";
+    }
+
+    @Override
+    void appendSamples(StringBuilder out) {
+        String sep = labels().isEmpty() ? "" : labels() + ",";
+        long cumulative = 0;
+        for (int i = 0; i <= bounds.length; i++) {
+            cumulative += counts.get(i);
+            String le = i < bounds.length ? number(bounds[i] * scale) : "+Inf";
+            out.append(name()).append("_bucket{").append(sep).append("le=\"").append(le).append("\"} ")
+                    .append(cumulative).append('\n');
+        }
+        out.append(name()).append("_sum").append(braces(labels())).append(' ').append(number(sum() * scale)).append('\n');
+        out.append(name()).append("_count").append(braces(labels())).append(' ').append(cumulative).append('\n');
+    }
+
+    private static String number(double v) {
+        return v == Math.rint(v) && Math.abs(v) < 1e15 ? Long.toString((long) v) : Double.toString(v);
+    }
+}
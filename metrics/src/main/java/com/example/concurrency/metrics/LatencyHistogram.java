@@ -0,0 +1,67 @@
+package com.example.concurrency.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free log-linear histogram of durations, fixed size whatever the sample count.
+ * Microsecond resolution; 16 sub-buckets per power of two, so quantiles are within ~6%.
+ * The max is exact. Unlike {@link Histogram} it is not exported; it backs per-run percentile reports.
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BITS = 4;
+    private static final int SUB = 1 << SUB_BITS;
+    private static final int BUCKETS = (64 - SUB_BITS + 1) * SUB;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAccumulator maxMicros = new LongAccumulator(Math::max, 0L);
+
+    public void recordNanos(long nanos) {
+        recordValue(Math.max(0L, nanos / 1_000L));
+    }
+
+    /** Records a raw non-negative value (micros for durations, or a plain count). */
+    public void recordValue(long v) {
+        counts.incrementAndGet(bucketOf(v));
+        count.increment();
+        maxMicros.accumulate(v);
+    }
+
+    public long count() {
+        return count.sum();
+    }
+
+    public long max() {
+        return maxMicros.get();
+    }
+
+    /** Value at quantile {@code q} (upper edge of its bucket, capped at the max); 0 when empty. */
+    public long quantile(double q) {
+        long n = count.sum();
+        if (n == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(q * n));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) return Math.min(upperEdge(i), max());
+        }
+        return max();
+    }
+
+    static int bucketOf(long v) {
+        if (v < SUB) return (int) v;
+        int exp = 63 - Long.numberOfLeadingZeros(v);
+        int sub = (int) (v >>> (exp - SUB_BITS)) & (SUB - 1);
+        return (exp - SUB_BITS + 1) * SUB + sub;
+    }
+
+    static long upperEdge(int bucket) {
+        if (bucket < SUB) return bucket;
+        int exp = bucket / SUB + SUB_BITS - 1;
+        long sub = bucket % SUB;
+        long width = 1L << (exp - SUB_BITS);
+        return (1L << exp) + (sub + 1) * width - 1;
+    }
+}
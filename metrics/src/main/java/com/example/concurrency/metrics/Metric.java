@@ -0,0 +1,33 @@
+package com.example.concurrency.metrics;
+
+/**
+ * Common part of every registered metric: name, help text and a fixed label set.
+ * instances are created through {@link MetricsRegistry} and live for the whole process
+ */
+public abstract sealed class Metric permits Counter, Gauge, Histogram {
+    private final String name;
+    private final String help;
+    private final String labels;
+
+    Metric(String name, String help, String labels) {
+        this.name = name;
+        this.help = help;
+        this.labels = labels;
+    }
+
+    public String name() { return name; }
+    public String help() { return help; }
+
+    /** Rendered label set, e.g. {@code strategy="CF"}; empty when unlabelled. */
+    public String labels() { return labels; }
+
+    /** Prometheus metric type: counter, gauge or histogram. */
+    abstract String type();
+
+    /** Appends this metric's sample lines (no HELP/TYPE header). */
+    abstract void appendSamples(StringBuilder out);
+
+    static String braces(String labels) {
+        return labels.isEmpty() ? "" : "{" + labels + "}";
+    }
+}
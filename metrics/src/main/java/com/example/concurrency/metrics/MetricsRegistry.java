@@ -0,0 +1,73 @@
+package com.example.concurrency.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Function;
+
+/**
+ * Process-wide home of counters, gauges and histograms, shared by every module.
+ * look a metric up once (static final field) and record on it; lookups are for setup, not hot paths
+ * the same name + labels always returns the same instance, so re-runs keep accumulating
+ * exported in Prometheus text format by {@link PrometheusExporter}
+ */
+public final class MetricsRegistry {
+
+    private static final MetricsRegistry GLOBAL = new MetricsRegistry();
+
+    /** Sorted by name, then labels, so samples of one metric family stay together on export. */
+    private final ConcurrentSkipListMap<String, Metric> metrics = new ConcurrentSkipListMap<>();
+
+    /** The registry every module records into. */
+    public static MetricsRegistry global() {
+        return GLOBAL;
+    }
+
+    /** Labels are key/value pairs: {@code counter("x_total", "help", "strategy", "CF")}. */
+    public Counter counter(String name, String help, String... labels) {
+        return register(name, labels, Counter.class, l -> new Counter(name, help, l));
+    }
+
+    public Gauge gauge(String name, String help, String... labels) {
+        return register(name, labels, Gauge.class, l -> new Gauge(name, help, l));
+    }
+
+    /** Histogram of durations in nanos (100us..10s buckets), exported in seconds. */
+    public Histogram timer(String name, String help, String... labels) {
+        return histogram(name, help, Histogram.DURATION_NANOS, 1e-9, labels);
+    }
+
+    /** Histogram with explicit upper bounds; {@code scale} converts raw values on export. */
+    public Histogram histogram(String name, String help, long[] bounds, double scale, String... labels) {
+        return register(name, labels, Histogram.class, l -> new Histogram(name, help, l, bounds, scale));
+    }
+
+    /** Registered metrics, grouped by name. */
+    public List<Metric> metrics() {
+        return new ArrayList<>(metrics.values());
+    }
+
+    private <M extends Metric> M register(String name, String[] labels, Class<M> type, Function<String, M> create) {
+        if (!name.matches("[a-zA-Z_:][a-zA-Z0-9_:]*")) throw new IllegalArgumentException("bad metric name: " + name);
+        String rendered = render(labels);
+        Metric m = metrics.computeIfAbsent(name + '\u0000' + rendered, k -> create.apply(rendered));
+        if (!type.isInstance(m)) {
+            throw new IllegalArgumentException(name + " is already registered as a " + m.type());
+        }
+        return type.cast(m);
+    }
+
+    private static String render(String[] labels) {
+        if (labels.length % 2 != 0) throw new IllegalArgumentException("labels must be key/value pairs");
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < labels.length; i += 2) {
+            if (i > 0) sb.append(',');
+            sb.append(labels[i]).append("=\"").append(escape(labels[i + 1])).append('"');
+        }
+        return sb.toString();
+    }
+
+    private static String escape(String v) {
+        return v.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
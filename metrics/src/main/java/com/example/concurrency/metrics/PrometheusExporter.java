@@ -0,0 +1,140 @@
+package com.example.concurrency.metrics;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Prometheus text-format (0.0.4) export of a {@link MetricsRegistry}.
+ * -Dmetrics.file=path: {@link #writeIfConfigured} rewrites the file atomically (node_exporter textfile style);
+ * with -Dmetrics.file.interval.millis > 0 it is also rewritten periodically in the background
+ * -Dmetrics.http.port=N: serves GET /metrics on localhost (0 picks a free port, see {@link #httpPort})
+ * both are started once per process by {@link #startIfConfigured}; every thread involved is a daemon
+ */
+public final class PrometheusExporter {
+    private PrometheusExporter() {}
+
+    private static final AtomicReference<HttpServer> SERVER = new AtomicReference<>();
+    private static final AtomicReference<ScheduledExecutorService> FILE_WRITER = new AtomicReference<>();
+
+    /** Renders every metric of {@code registry}, one HELP/TYPE header per metric family. */
+    public static String scrape(MetricsRegistry registry) {
+        StringBuilder out = new StringBuilder(4096);
+        String family = null;
+        for (Metric m : registry.metrics()) {
+            if (!m.name().equals(family)) {
+                family = m.name();
+                out.append("# HELP ").append(family).append(' ').append(m.help().replace("\n", " ")).append('\n');
+                out.append("# TYPE ").append(family).append(' ').append(m.type()).append('\n');
+            }
+            m.appendSamples(out);
+        }
+        return out.toString();
+    }
+
+    /** Writes a scrape to {@code file} through a temp file and a rename, so readers never see half a file. */
+    public static void write(MetricsRegistry registry, Path file) throws IOException {
+        Path abs = file.toAbsolutePath();
+        Path tmp = abs.resolveSibling(abs.getFileName() + ".tmp");
+        Files.writeString(tmp, scrape(registry), StandardCharsets.UTF_8);
+        try {
+            Files.move(tmp, abs, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException atomicUnsupported) {
+            Files.move(tmp, abs, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /** Writes the global registry to -Dmetrics.file if set; returns whether it wrote. */
+    public static boolean writeIfConfigured() {
+        String file = System.getProperty("metrics.file");
+        if (file == null || file.isBlank()) return false;
+        try {
+            write(MetricsRegistry.global(), Path.of(file));
+            return true;
+        } catch (IOException e) {
+            System.err.println("[Metrics] could not write " + file + ": " + e);
+            return false;
+        }
+    }
+
+    /** Starts the HTTP endpoint and the periodic file writer if configured (idempotent, cheap to call per run). */
+    public static void startIfConfigured() {
+        Integer port = Integer.getInteger("metrics.http.port");
+        if (port != null && SERVER.get() == null) {
+            try {
+                serve(MetricsRegistry.global(), port);
+            } catch (IOException e) {
+                System.err.println("[Metrics] could not listen on port " + port + ": " + e);
+            }
+        }
+        long every = Long.getLong("metrics.file.interval.millis", 0L);
+        if (every > 0 && System.getProperty("metrics.file") != null && FILE_WRITER.get() == null) {
+            ScheduledExecutorService ses = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "metrics-file-writer");
+                t.setDaemon(true);
+                return t;
+            });
+            if (FILE_WRITER.compareAndSet(null, ses)) {
+                ses.scheduleAtFixedRate(PrometheusExporter::writeIfConfigured, every, every, TimeUnit.MILLISECONDS);
+            } else {
+                ses.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Serves {@code registry} at http://localhost:port/metrics and returns the bound port.
+     * Only one endpoint per process; a second call returns the existing port.
+     */
+    public static synchronized int serve(MetricsRegistry registry, int port) throws IOException {
+        HttpServer existing = SERVER.get();
+        if (existing != null) return existing.getAddress().getPort();
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/metrics", ex -> {
+            try (ex) {
+                if (!"GET".equals(ex.getRequestMethod())) {
+                    ex.sendResponseHeaders(405, -1);
+                    return;
+                }
+                byte[] body = scrape(registry).getBytes(StandardCharsets.UTF_8);
+                ex.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+                ex.sendResponseHeaders(200, body.length);
+                try (OutputStream os = ex.getResponseBody()) {
+                    os.write(body);
+                }
+            }
+        });
+        server.setExecutor(null); // scrapes are rare: handle them on the dispatcher thread
+        // The dispatcher thread inherits daemon status from the thread that starts the server,
+        // so start it from a daemon thread: the endpoint must never keep a demo JVM alive.
+        Thread starter = new Thread(server::start, "metrics-http-start");
+        starter.setDaemon(true);
+        starter.start();
+        try {
+            starter.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            server.stop(0);
+            throw new UncheckedIOException(new IOException("interrupted while starting", e));
+        }
+        SERVER.set(server);
+        return server.getAddress().getPort();
+    }
+
+    /** Port of the running endpoint, or -1 if none was started. */
+    public static int httpPort() {
+        HttpServer s = SERVER.get();
+        return s == null ? -1 : s.getAddress().getPort();
+    }
+}
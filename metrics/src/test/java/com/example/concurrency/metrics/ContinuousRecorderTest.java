@@ -0,0 +1,70 @@
+package com.example.concurrency.metrics;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** JFR ring buffer: on unless opted out, shared per module, dumps with an incident marker, rate limited. */
+public class ContinuousRecorderTest {
+
+    @Test
+    @DisplayName("With -Djfr.enabled=false the recorder is a no-op")
+    void disabledByOptOut() {
+        System.setProperty("jfr.enabled", "false");
+        try (ContinuousRecorder rec = ContinuousRecorder.startIfConfigured("t-off")) {
+            assertFalse(rec.enabled());
+            assertNull(rec.dump("any", "nothing recorded"));
+        }
+    }
+
+    @Test
+    @DisplayName("Without -Djfr.enabled the recorder runs")
+    void enabledByDefault() {
+        System.clearProperty("jfr.enabled");
+        try (ContinuousRecorder rec = ContinuousRecorder.startIfConfigured("t-default")) {
+            assertEquals(jdk.jfr.FlightRecorder.isAvailable(), rec.enabled());
+        } finally {
+            System.setProperty("jfr.enabled", "false"); // back to the build's default for tests
+        }
+        assertFalse(ContinuousRecorder.active("t-default").enabled());
+    }
+
+    @Test
+    @DisplayName("Dump writes the ring buffer with its incident event; repeat dumps are rate limited")
+    void dumpsAreMarkedAndRateLimited(@TempDir Path dir) throws Exception {
+        System.setProperty("jfr.enabled", "true");
+        System.setProperty("jfr.dir", dir.toString());
+        System.setProperty("jfr.dump.min.interval.millis", "60000");
+        try (ContinuousRecorder rec = ContinuousRecorder.startIfConfigured("t-on")) {
+            assertTrue(rec.enabled());
+            try (ContinuousRecorder nested = ContinuousRecorder.startIfConfigured("t-on")) {
+                assertSame(rec, nested, "nested runs of one module share the recording");
+            }
+            assertSame(rec, ContinuousRecorder.active("t-on"), "still running after the nested close");
+
+            Path file = rec.dump("queue-full", "depth=64");
+            assertNotNull(file);
+            assertTrue(Files.size(file) > 0);
+            assertTrue(file.getFileName().toString().startsWith("t-on-queue-full-"));
+            var incident = RecordingFile.readAllEvents(file).stream()
+                    .filter(e -> e.getEventType().getName().equals("com.example.concurrency.Incident"))
+                    .findFirst().orElseThrow();
+            assertEquals("queue-full", incident.getString("reason"));
+            assertEquals("depth=64", incident.getString("detail"));
+
+            assertNull(rec.dump("queue-full", "again"), "second dump inside the interval is skipped");
+            assertEquals(1, rec.dumps());
+        } finally {
+            System.setProperty("jfr.enabled", "false"); // back to the build's default for tests
+            System.clearProperty("jfr.dir");
+            System.clearProperty("jfr.dump.min.interval.millis");
+        }
+        assertFalse(ContinuousRecorder.active("t-on").enabled(), "last close stops the recording");
+    }
+}
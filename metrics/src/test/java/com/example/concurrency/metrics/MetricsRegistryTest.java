@@ -0,0 +1,108 @@
+package com.example.concurrency.metrics;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** Registry semantics, histogram buckets and both export paths. */
+public class MetricsRegistryTest {
+
+    @Test
+    @DisplayName("Concurrent increments are all counted and lookups return the same instance")
+    void countersAreExactUnderContention() throws Exception {
+        var reg = new MetricsRegistry();
+        Counter c = reg.counter("t_ops_total", "ops", "worker", "any");
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            threads.add(Thread.ofPlatform().start(() -> {
+                for (int i = 0; i < 100_000; i++) c.inc();
+            }));
+        }
+        for (Thread t : threads) t.join();
+        assertEquals(800_000, c.get());
+        assertSame(c, reg.counter("t_ops_total", "ops", "worker", "any"));
+        assertNotSame(c, reg.counter("t_ops_total", "ops", "worker", "other"));
+        assertThrows(IllegalArgumentException.class, () -> reg.gauge("t_ops_total", "clash", "worker", "any"));
+    }
+
+    @Test
+    @DisplayName("Histogram buckets use 'le' bounds, quantiles are capped at the exact max")
+    void histogramBucketsAndQuantiles() {
+        var reg = new MetricsRegistry();
+        Histogram h = reg.histogram("t_size", "sizes", new long[]{10, 100, 1_000}, 1.0);
+        for (int v = 1; v <= 100; v++) h.record(v); // 10 in le=10, 90 in le=100
+        h.record(5_000);                             // +Inf
+        assertEquals(101, h.count());
+        assertEquals(10, h.quantile(0.05));
+        assertEquals(100, h.quantile(0.5));
+        assertEquals(5_000, h.quantile(1.0));
+        assertEquals(5_000, h.max());
+
+        String text = PrometheusExporter.scrape(reg);
+        assertTrue(text.contains("t_size_bucket{le=\"10\"} 10\n"), text);
+        assertTrue(text.contains("t_size_bucket{le=\"100\"} 100\n"), text);
+        assertTrue(text.contains("t_size_bucket{le=\"+Inf\"} 101\n"), text);
+        assertTrue(text.contains("t_size_sum 10050\n"), text);
+    }
+
+    @Test
+    @DisplayName("Scrape groups label sets under one HELP/TYPE header; gauges read bound suppliers")
+    void scrapeFormat() {
+        var reg = new MetricsRegistry();
+        reg.counter("t_req_total", "requests", "strategy", "CF").add(3);
+        reg.counter("t_req_total", "requests", "strategy", "Loom").add(4);
+        reg.gauge("t_depth", "queue depth").bind(() -> 42);
+        reg.timer("t_latency_seconds", "latency").record(2_000_000); // 2ms
+
+        String text = PrometheusExporter.scrape(reg);
+        assertEquals(1, text.split("# TYPE t_req_total counter", -1).length - 1, text);
+        assertTrue(text.contains("t_req_total{strategy=\"CF\"} 3\n"), text);
+        assertTrue(text.contains("t_req_total{strategy=\"Loom\"} 4\n"), text);
+        assertTrue(text.contains("# TYPE t_depth gauge\nt_depth 42\n"), text);
+        assertTrue(text.contains("t_latency_seconds_bucket{le=\"0.0025\"} 1\n"), text);
+        assertTrue(text.contains("t_latency_seconds_sum 0.002\n"), text);
+    }
+
+    @Test
+    @DisplayName("File export writes the scrape and HTTP endpoint serves it on localhost")
+    void fileAndHttpExport(@TempDir Path dir) throws Exception {
+        var reg = new MetricsRegistry();
+        reg.counter("t_exported_total", "exported").inc();
+
+        Path file = dir.resolve("metrics.prom");
+        PrometheusExporter.write(reg, file);
+        assertEquals(PrometheusExporter.scrape(reg), Files.readString(file));
+
+        int port = PrometheusExporter.serve(reg, 0);
+        assertEquals(port, PrometheusExporter.httpPort());
+        var client = HttpClient.newHttpClient();
+        var resp = client.send(HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/metrics")).build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, resp.statusCode());
+        assertTrue(resp.body().contains("t_exported_total 1\n"), resp.body());
+    }
+
+    @Test
+    @DisplayName("Latency histogram quantiles stay within bucket precision and max is exact")
+    void histogramQuantiles() {
+        var h = new LatencyHistogram();
+        for (long ms = 1; ms <= 1_000; ms++) h.recordNanos(ms * 1_000_000L);
+        assertEquals(1_000, h.count());
+        assertEquals(1_000_000, h.max());
+        assertEquals(500_000, h.quantile(0.50), 500_000 * 0.07);
+        assertEquals(990_000, h.quantile(0.99), 990_000 * 0.07);
+        assertTrue(h.quantile(1.0) <= h.max());
+        assertEquals(0, new LatencyHistogram().quantile(0.5));
+    }
+}
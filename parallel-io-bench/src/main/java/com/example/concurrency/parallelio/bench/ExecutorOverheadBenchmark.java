@@ -0,0 +1,109 @@
+package com.example.concurrency.parallelio.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Raw cost of the three ways the fetchers put work on threads, without the fetch engine around them:
+ * cf-fixed - CompletableFuture.supplyAsync on a fixed pool (ParallelFetchCf's original shape)
+ * virtual  - one virtual thread per task
+ * capped   - one virtual thread per task behind a Semaphore of {@code cap} permits
+ * {@link #fanOut} submits {@code tasks} tasks and joins them all (score / tasks = per-task overhead);
+ * {@link #roundTrip} is one submit-to-completion (completion latency).
+ * With {@code latencyMillis} = 0 the task is empty, so the score is pure scheduling overhead.
+ */
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = "-Xmx1g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ExecutorOverheadBenchmark {
+
+    @Param({"cf-fixed", "virtual", "capped"})
+    public String mode;
+
+    @Param({"1000", "10000"})
+    public int tasks;
+
+    @Param({"0", "1"})
+    public long latencyMillis;
+
+    @Param({"64"})
+    public int cap;
+
+    @Param({"8"})
+    public int pool;
+
+    private ExecutorService exec;
+    private Semaphore permits;
+
+    @Setup(Level.Trial)
+    public void open() {
+        exec = mode.equals("cf-fixed") ? Executors.newFixedThreadPool(pool) : Executors.newVirtualThreadPerTaskExecutor();
+        permits = mode.equals("capped") ? new Semaphore(cap) : null;
+    }
+
+    @TearDown(Level.Trial)
+    public void close() {
+        exec.shutdownNow();
+    }
+
+    private long task() {
+        if (latencyMillis > 0) {
+            try {
+                Thread.sleep(latencyMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return latencyMillis;
+    }
+
+    private CompletableFuture<Long> submit() {
+        if (permits == null) return CompletableFuture.supplyAsync(this::task, exec);
+        return CompletableFuture.supplyAsync(() -> {
+            permits.acquireUninterruptibly();
+            try {
+                return task();
+            } finally {
+                permits.release();
+            }
+        }, exec);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public long fanOut() {
+        List<CompletableFuture<Long>> futures = new ArrayList<>(tasks);
+        for (int i = 0; i < tasks; i++) futures.add(submit());
+        long sum = 0;
+        for (CompletableFuture<Long> f : futures) sum += f.join();
+        return sum;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public long roundTrip() {
+        return submit().join();
+    }
+}
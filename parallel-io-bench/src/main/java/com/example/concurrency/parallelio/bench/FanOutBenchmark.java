@@ -0,0 +1,90 @@
+package com.example.concurrency.parallelio.bench;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+
+import com.example.concurrency.parallelio.FetchEngine;
+import com.example.concurrency.parallelio.RunningSummary;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * End-to-end fan-out through {@link FetchEngine}: cap, retries, bulkheads, cache lookups and all.
+ * Inputs are generated load ids with a fixed simulated latency, streamed so the harness holds nothing
+ * per input. {@code cap} = 0 means uncapped. Compare with {@link ExecutorOverheadBenchmark} to see
+ * what the engine adds over the bare executor.
+ */
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx1g", "-Dio.quiet=true", "-Dio.retry.max=0", "-Djfr.enabled=false"})
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class FanOutBenchmark {
+
+    @Param({"cf", "loom", "async"})
+    public String strategy;
+
+    @Param({"1000", "10000"})
+    public int inputs;
+
+    @Param({"0", "5"})
+    public long latencyMillis;
+
+    @Param({"0", "64"})
+    public int cap;
+
+    private FetchEngine.Strategy engineStrategy;
+    private long batch;
+
+    @Setup(Level.Trial)
+    public void configure() {
+        engineStrategy = FetchEngine.Strategy.parse(strategy);
+        if (cap > 0) System.setProperty("io.cap", String.valueOf(cap));
+        else System.clearProperty("io.cap");
+        System.setProperty("io.stream.window", String.valueOf(inputs));
+    }
+
+    @TearDown(Level.Trial)
+    public void clear() {
+        System.clearProperty("io.cap");
+        System.clearProperty("io.stream.window");
+    }
+
+    /** load-&lt;batch&gt;-&lt;i&gt;@&lt;latency&gt;: unique per invocation, so nothing is coalesced. */
+    private Iterable<String> batchInputs() {
+        String prefix = "load-" + (batch++) + '-';
+        String suffix = "@" + latencyMillis;
+        return () -> new Iterator<>() {
+            int i;
+
+            @Override public boolean hasNext() {
+                return i < inputs;
+            }
+
+            @Override public String next() {
+                if (i >= inputs) throw new NoSuchElementException();
+                return prefix + (i++) + suffix;
+            }
+        };
+    }
+
+    @Benchmark
+    public long fanOut() throws InterruptedException {
+        RunningSummary s = FetchEngine.stream(engineStrategy, batchInputs(), r -> { });
+        return s.success();
+    }
+}
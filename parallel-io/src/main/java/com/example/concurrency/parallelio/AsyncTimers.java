@@ -0,0 +1,24 @@
+package com.example.concurrency.parallelio;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Delayed executors for the non-blocking paths (simulated latency, backoff, hedge delays).
+ * {@link CompletableFuture#delayedExecutor(long, TimeUnit)} hands each expired timer to the common
+ * pool, or to a new platform thread per task when the common pool has parallelism 1 (1-2 CPUs).
+ * Here the fallback is a virtual thread per task instead, so timers never cost an OS thread.
+ */
+final class AsyncTimers {
+    private AsyncTimers() {}
+
+    private static final Executor CALLBACKS = ForkJoinPool.getCommonPoolParallelism() > 1
+            ? ForkJoinPool.commonPool()
+            : r -> Thread.ofVirtual().name("timer-callback").start(r);
+
+    static Executor after(long delay, TimeUnit unit) {
+        return CompletableFuture.delayedExecutor(delay, unit, CALLBACKS);
+    }
+}
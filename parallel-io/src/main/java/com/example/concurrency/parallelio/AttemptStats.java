@@ -0,0 +1,13 @@
+package com.example.concurrency.parallelio;
+
+/** Per-run attempt counters reported by the fetchers (see {@link RetryEngine}). */
+public record AttemptStats(long requests, long attempts, long retries, long hedges, long hedgeWins,
+                           long wastedAttempts, long timeouts, long budgetDenied) {
+    static final AttemptStats EMPTY = new AttemptStats(0, 0, 0, 0, 0, 0, 0, 0);
+
+    @Override public String toString() {
+        return "requests=" + requests + " attempts=" + attempts + " retries=" + retries
+                + " hedges=" + hedges + " hedgeWins=" + hedgeWins + " wasted=" + wastedAttempts
+                + " timeouts=" + timeouts + " budgetDenied=" + budgetDenied;
+    }
+}
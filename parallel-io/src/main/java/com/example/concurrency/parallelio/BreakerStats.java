@@ -0,0 +1,10 @@
+package com.example.concurrency.parallelio;
+
+/** Per-run circuit-breaker counters reported by the fetchers (see {@link CircuitBreakers}). */
+public record BreakerStats(long shortCircuited, long opened, long halfOpened, long closed) {
+    static final BreakerStats EMPTY = new BreakerStats(0, 0, 0, 0);
+
+    @Override public String toString() {
+        return "shortCircuited=" + shortCircuited + " opened=" + opened + " halfOpened=" + halfOpened + " closed=" + closed;
+    }
+}
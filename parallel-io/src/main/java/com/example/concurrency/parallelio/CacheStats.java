@@ -0,0 +1,13 @@
+package com.example.concurrency.parallelio;
+
+/**
+ * Per-run result-cache counters reported by the fetchers (see {@link ResultCache}).
+ * {@code evictions} are entries pushed out by the size cap; {@code expirations} are entries found past their TTL.
+ */
+public record CacheStats(long hits, long misses, long coalesced, long evictions, long expirations) {
+    static final CacheStats EMPTY = new CacheStats(0, 0, 0, 0, 0);
+
+    @Override public String toString() {
+        return "hits=" + hits + " misses=" + misses + " coalesced=" + coalesced + " evictions=" + evictions + " expirations=" + expirations;
+    }
+}
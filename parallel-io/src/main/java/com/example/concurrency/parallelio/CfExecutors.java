@@ -0,0 +1,203 @@
+package com.example.concurrency.parallelio;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Executor modes of the CF strategy, chosen by -Dio.cf.executor:
+ * fixed   - a fresh -Dio.pool fixed pool per run, shut down after it (the original behaviour, default)
+ * shared  - one long-lived blocking pool for all runs, resized after each run from the measured
+ *           wait/compute ratio: cores x (1 + wait/compute), between io.pool and -Dio.cf.shared.max
+ * managed - one long-lived ForkJoinPool of io.pool parallelism; blocking fetches run under
+ *           {@link ForkJoinPool.ManagedBlocker}, so the pool adds spare threads while they wait
+ */
+final class CfExecutors {
+    private CfExecutors() {}
+
+    enum Mode {
+        FIXED, SHARED, MANAGED;
+
+        /** Parses -Dio.cf.executor; an unknown value is an error rather than a silent {@link #FIXED}. */
+        static Mode parse(String s) {
+            return switch (s.trim().toLowerCase(Locale.ROOT)) {
+                case "fixed" -> FIXED;
+                case "shared", "elastic" -> SHARED;
+                case "managed", "fj", "forkjoin" -> MANAGED;
+                default -> throw new IllegalArgumentException("unknown io.cf.executor '" + s
+                        + "'; expected one of fixed, shared, managed");
+            };
+        }
+    }
+
+    static Mode configuredMode() {
+        return Mode.parse(System.getProperty("io.cf.executor", "fixed"));
+    }
+
+    static ExecutionStrategy open(FetchCore core) {
+        int poolSize = Integer.getInteger("io.pool", 8);
+        return switch (configuredMode()) {
+            case FIXED -> new ExecutionStrategy.FixedPool(core, poolSize);
+            case SHARED -> new Shared(core);
+            case MANAGED -> new Managed(core);
+        };
+    }
+
+    // ---- shared blocking pool ----
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    private static final int CORES = Runtime.getRuntime().availableProcessors();
+    private static final LongAdder WALL_NANOS = new LongAdder();
+    private static final LongAdder CPU_NANOS = new LongAdder();
+
+    private static final class SharedHolder {
+        static final ThreadPoolExecutor POOL = newSharedPool(Math.max(1, Integer.getInteger("io.pool", 8)));
+    }
+
+    private static ThreadPoolExecutor newSharedPool(int size) {
+        AtomicInteger n = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(size, size, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread t = new Thread(r, "cf-shared-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        pool.allowCoreThreadTimeOut(true); // idle threads go away between bursts
+        return pool;
+    }
+
+    /** The long-lived pool behind the shared mode (created on first use). */
+    static ThreadPoolExecutor sharedPool() {
+        return SharedHolder.POOL;
+    }
+
+    /** Runs one blocking fetch, adding its wall and CPU time to the sizing sample. */
+    private static FetchResult measured(FetchCore core, String in, long queuedAt) {
+        boolean cpu = THREADS.isCurrentThreadCpuTimeSupported();
+        long wall0 = System.nanoTime(), cpu0 = cpu ? THREADS.getCurrentThreadCpuTime() : 0;
+        try {
+            return core.fetchBlocking(in, queuedAt);
+        } finally {
+            WALL_NANOS.add(System.nanoTime() - wall0);
+            if (cpu) CPU_NANOS.add(THREADS.getCurrentThreadCpuTime() - cpu0);
+        }
+    }
+
+    /**
+     * Resizes the shared pool from the wait/compute ratio seen since the last resize.
+     * Pure waiting (sleep, I/O) pushes it to the max; pure compute pulls it back toward io.pool.
+     */
+    static int resizeShared() {
+        long wall = WALL_NANOS.sumThenReset(), cpu = CPU_NANOS.sumThenReset();
+        ThreadPoolExecutor pool = sharedPool();
+        if (wall <= 0) return pool.getMaximumPoolSize();
+        int min = Math.max(1, Integer.getInteger("io.pool", 8));
+        int max = Math.max(min, Integer.getInteger("io.cf.shared.max", 256));
+        double waitOverCompute = (double) Math.max(0, wall - cpu) / Math.max(cpu, 1_000_000L);
+        int target = (int) Math.max(min, Math.min(max, Math.round(CORES * (1 + waitOverCompute))));
+        synchronized (pool) {
+            if (target > pool.getMaximumPoolSize()) {
+                pool.setMaximumPoolSize(target);
+                pool.setCorePoolSize(target);
+            } else if (target < pool.getMaximumPoolSize()) {
+                pool.setCorePoolSize(target);
+                pool.setMaximumPoolSize(target);
+            }
+        }
+        return target;
+    }
+
+    /** CF on the shared pool; close() only resizes it, threads outlive the run. */
+    static final class Shared implements ExecutionStrategy {
+        private final FetchCore core;
+
+        Shared(FetchCore core) {
+            this.core = core;
+        }
+
+        @Override public CompletableFuture<FetchResult> start(String input) {
+            long queuedAt = System.nanoTime();
+            return SimulatedBackend.isSimulated(input)
+                    ? CompletableFuture.supplyAsync(() -> measured(core, input, queuedAt), sharedPool())
+                    : core.fetchAsync(input);
+        }
+
+        @Override public void close() {
+            resizeShared();
+        }
+    }
+
+    // ---- managed fork/join pool ----
+
+    private static final class ManagedHolder {
+        static final ForkJoinPool POOL = new ForkJoinPool(Math.max(1, Integer.getInteger("io.pool", 8)),
+                pool -> {
+                    var t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                    t.setName("cf-managed-" + t.getPoolIndex());
+                    return t;
+                }, null, true);
+    }
+
+    /** The long-lived pool behind the managed mode (created on first use). */
+    static ForkJoinPool managedPool() {
+        return ManagedHolder.POOL;
+    }
+
+    /** Tells the fork/join pool a fetch is about to block so it can compensate with a spare worker. */
+    private static final class FetchBlocker implements ForkJoinPool.ManagedBlocker {
+        private final FetchCore core;
+        private final String in;
+        private final long queuedAt;
+        private volatile FetchResult result;
+
+        FetchBlocker(FetchCore core, String in, long queuedAt) {
+            this.core = core;
+            this.in = in;
+            this.queuedAt = queuedAt;
+        }
+
+        @Override public boolean block() {
+            result = core.fetchBlocking(in, queuedAt);
+            return true;
+        }
+
+        @Override public boolean isReleasable() {
+            return result != null;
+        }
+
+        FetchResult fetch() {
+            try {
+                ForkJoinPool.managedBlock(this);
+                return result;
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                return FetchResult.failed(in, HttpFetch.STATUS_CANCELLED);
+            }
+        }
+    }
+
+    /** CF on the managed fork/join pool; close() leaves the pool running for the next run. */
+    static final class Managed implements ExecutionStrategy {
+        private final FetchCore core;
+
+        Managed(FetchCore core) {
+            this.core = core;
+        }
+
+        @Override public CompletableFuture<FetchResult> start(String input) {
+            long queuedAt = System.nanoTime();
+            return SimulatedBackend.isSimulated(input)
+                    ? CompletableFuture.supplyAsync(() -> new FetchBlocker(core, input, queuedAt).fetch(), managedPool())
+                    : core.fetchAsync(input);
+        }
+
+        @Override public void close() {
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package com.example.concurrency.parallelio;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Circuit breakers per input class ({@link LatencyTracker#classOf}), opt-in via -Dio.breaker.enabled.
+ * Shared by all runs, so an outage seen by one fan-out fails fast in the next.
+ * CLOSED: the last -Dio.breaker.window attempts are kept; once -Dio.breaker.min.calls are in, the
+ * breaker opens when the failure rate reaches -Dio.breaker.failure.rate or the share of attempts slower
+ * than -Dio.breaker.slow.millis reaches -Dio.breaker.slow.rate
+ * OPEN: attempts fail fast with {@link FetchResult#STATUS_CIRCUIT_OPEN} for -Dio.breaker.open.millis
+ * HALF_OPEN: up to -Dio.breaker.half.open.calls probes; all succeed -> CLOSED, any fails -> OPEN
+ * transitions and short circuits are counted per run ({@link Session})
+ */
+final class CircuitBreakers {
+
+    enum State { CLOSED, OPEN, HALF_OPEN }
+
+    record Config(boolean enabled, int window, int minCalls, double failureRate, long slowCallMillis,
+                  double slowCallRate, long openMillis, int halfOpenCalls) {
+        static final Config DISABLED = new Config(false, 20, 10, 0.5, 0, 1.0, 1_000, 3);
+
+        static Config fromSystemProperties() {
+            if (!Boolean.getBoolean("io.breaker.enabled")) return DISABLED;
+            int window = Math.max(1, Integer.getInteger("io.breaker.window", 20));
+            return new Config(true, window,
+                    Math.max(1, Math.min(window, Integer.getInteger("io.breaker.min.calls", 10))),
+                    Double.parseDouble(System.getProperty("io.breaker.failure.rate", "0.5")),
+                    Long.getLong("io.breaker.slow.millis", 0L),
+                    Double.parseDouble(System.getProperty("io.breaker.slow.rate", "1.0")),
+                    Math.max(0L, Long.getLong("io.breaker.open.millis", 1_000L)),
+                    Math.max(1, Integer.getInteger("io.breaker.half.open.calls", 3)));
+        }
+    }
+
+    /** Shared by all fetchers: the same backend is healthy or not for CF and Loom alike. */
+    static final CircuitBreakers SHARED = new CircuitBreakers();
+
+    private final ConcurrentHashMap<String, Breaker> byClass = new ConcurrentHashMap<>();
+
+    Session session(Config cfg) {
+        return new Session(cfg);
+    }
+
+    /** Current state per input class, sorted by class. */
+    Map<String, State> states() {
+        Map<String, State> out = new TreeMap<>();
+        byClass.forEach((c, b) -> out.put(c, b.state()));
+        return out;
+    }
+
+    void clear() {
+        byClass.clear();
+    }
+
+    /** One run's view: its config and its counters. */
+    final class Session {
+        private final Config cfg;
+        private final LongAdder shortCircuited = new LongAdder();
+        private final LongAdder opened = new LongAdder();
+        private final LongAdder halfOpened = new LongAdder();
+        private final LongAdder closed = new LongAdder();
+
+        private Session(Config cfg) {
+            this.cfg = cfg;
+        }
+
+        boolean enabled() {
+            return cfg.enabled();
+        }
+
+        /** Breaker for an input, or null when breakers are off. */
+        Breaker forInput(String id) {
+            return cfg.enabled() ? byClass.computeIfAbsent(LatencyTracker.classOf(id), c -> new Breaker(cfg.window())) : null;
+        }
+
+        BreakerStats stats() {
+            return new BreakerStats(shortCircuited.sum(), opened.sum(), halfOpened.sum(), closed.sum());
+        }
+
+        /** States of the classes this process has seen, e.g. {@code flaky=OPEN sim=CLOSED}. */
+        String describe() {
+            if (!cfg.enabled()) return "off";
+            StringBuilder sb = new StringBuilder();
+            states().forEach((c, s) -> sb.append(c).append('=').append(s).append(' '));
+            return sb.append(stats()).toString();
+        }
+
+        /**
+         * Cheap pre-check before an input is handed to a strategy: true (and counted) when the
+         * breaker is open and not yet due for a probe. Does not take a half-open permit.
+         */
+        boolean rejectsNow(Breaker b) {
+            if (!b.cooling(cfg)) return false;
+            shortCircuited.increment();
+            return true;
+        }
+
+        /** True if an attempt may go out now; false counts a short circuit. */
+        boolean tryAcquire(Breaker b) {
+            if (b.tryAcquire(cfg, this)) return true;
+            shortCircuited.increment();
+            return false;
+        }
+
+        /** Feeds one finished attempt to the breaker. */
+        void onResult(Breaker b, boolean ok, long nanos) {
+            boolean slow = cfg.slowCallMillis() > 0 && nanos >= cfg.slowCallMillis() * 1_000_000L;
+            b.onResult(cfg, this, ok, slow);
+        }
+
+        /** Gives back an acquired permit without an outcome (the attempt was cancelled). */
+        void release(Breaker b) {
+            b.release();
+        }
+
+        private void transitioned(State to) {
+            switch (to) {
+                case OPEN -> opened.increment();
+                case HALF_OPEN -> halfOpened.increment();
+                case CLOSED -> closed.increment();
+            }
+        }
+    }
+
+    /** One class's breaker: a ring of recent outcomes plus the state machine. */
+    static final class Breaker {
+        private static final byte FAILED = 1, SLOW = 2;
+
+        private final byte[] ring;
+        private int next, size, failures, slows;
+        private State state = State.CLOSED;
+        private long openedAtNanos;
+        private int probesOut, probesOk;
+
+        Breaker(int window) {
+            this.ring = new byte[window];
+        }
+
+        synchronized State state() {
+            return state;
+        }
+
+        synchronized boolean cooling(Config cfg) {
+            return state == State.OPEN && System.nanoTime() - openedAtNanos < cfg.openMillis() * 1_000_000L;
+        }
+
+        synchronized boolean tryAcquire(Config cfg, Session s) {
+            if (state == State.OPEN) {
+                if (cooling(cfg)) return false;
+                moveTo(State.HALF_OPEN, s);
+            }
+            if (state == State.HALF_OPEN) {
+                if (probesOut + probesOk >= cfg.halfOpenCalls()) return false;
+                probesOut++;
+            }
+            return true;
+        }
+
+        synchronized void release() {
+            if (state == State.HALF_OPEN && probesOut > 0) probesOut--;
+        }
+
+        synchronized void onResult(Config cfg, Session s, boolean ok, boolean slow) {
+            switch (state) {
+                case HALF_OPEN -> {
+                    if (probesOut > 0) probesOut--;
+                    if (!ok) {
+                        open(s);
+                    } else if (++probesOk >= cfg.halfOpenCalls()) {
+                        resetWindow();
+                        moveTo(State.CLOSED, s);
+                    }
+                }
+                case CLOSED -> {
+                    add((byte) ((ok ? 0 : FAILED) | (slow ? SLOW : 0)));
+                    if (size >= cfg.minCalls()
+                            && ((double) failures / size >= cfg.failureRate() || (double) slows / size >= cfg.slowCallRate())) {
+                        open(s);
+                    }
+                }
+                case OPEN -> { } // a straggler from before the breaker opened
+            }
+        }
+
+        private void open(Session s) {
+            openedAtNanos = System.nanoTime();
+            resetWindow();
+            moveTo(State.OPEN, s);
+        }
+
+        private void moveTo(State to, Session s) {
+            state = to;
+            probesOut = 0;
+            probesOk = 0;
+            s.transitioned(to);
+        }
+
+        private void add(byte outcome) {
+            if (size == ring.length) {
+                byte old = ring[next];
+                if ((old & FAILED) != 0) failures--;
+                if ((old & SLOW) != 0) slows--;
+            } else {
+                size++;
+            }
+            ring[next] = outcome;
+            next = (next + 1) % ring.length;
+            if ((outcome & FAILED) != 0) failures++;
+            if ((outcome & SLOW) != 0) slows++;
+        }
+
+        private void resetWindow() {
+            next = size = failures = slows = 0;
+        }
+    }
+}
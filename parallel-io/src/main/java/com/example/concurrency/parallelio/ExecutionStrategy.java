@@ -0,0 +1,78 @@
+package com.example.concurrency.parallelio;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * How a fan-out is executed. The {@link FetchCore} does the per-input work (cap, peak,
+ * retries); a strategy only decides where it runs. Opened per run, closed when all inputs are done.
+ */
+interface ExecutionStrategy extends AutoCloseable {
+
+    /** Starts one input; the future completes with its result (never exceptionally by design). */
+    CompletableFuture<FetchResult> start(String input);
+
+    @Override
+    void close();
+
+    /**
+     * CompletableFuture on a fixed pool (-Dio.pool). Simulated inputs run on the pool; real URLs go out
+     * with sendAsync and hold no thread while in flight, so only -Dio.cap (or -Dio.cf.cap) bounds them.
+     */
+    final class FixedPool implements ExecutionStrategy {
+        private final FetchCore core;
+        private final ExecutorService pool;
+
+        FixedPool(FetchCore core, int poolSize) {
+            this.core = core;
+            this.pool = Executors.newFixedThreadPool(poolSize);
+        }
+
+        @Override public CompletableFuture<FetchResult> start(String input) {
+            long queuedAt = System.nanoTime();
+            return SimulatedBackend.isSimulated(input)
+                    ? CompletableFuture.supplyAsync(() -> core.fetchBlocking(input, queuedAt), pool)
+                    : core.fetchAsync(input);
+        }
+
+        @Override public void close() {
+            pool.shutdownNow();
+        }
+    }
+
+    /** One virtual thread per input, blocking calls throughout. */
+    final class VirtualThreads implements ExecutionStrategy {
+        private final FetchCore core;
+        private final ExecutorService exec = Executors.newVirtualThreadPerTaskExecutor();
+
+        VirtualThreads(FetchCore core) {
+            this.core = core;
+        }
+
+        @Override public CompletableFuture<FetchResult> start(String input) {
+            long queuedAt = System.nanoTime();
+            return CompletableFuture.supplyAsync(() -> core.fetchBlocking(input, queuedAt), exec);
+        }
+
+        @Override public void close() {
+            exec.close();
+        }
+    }
+
+    /** No thread per input at all: timers for simulated inputs, sendAsync for real ones. */
+    final class AsyncNio implements ExecutionStrategy {
+        private final FetchCore core;
+
+        AsyncNio(FetchCore core) {
+            this.core = core;
+        }
+
+        @Override public CompletableFuture<FetchResult> start(String input) {
+            return core.fetchAsync(input);
+        }
+
+        @Override public void close() {
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package com.example.concurrency.parallelio;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Per-run fetch work shared by every {@link ExecutionStrategy}: per-destination bulkheads,
+ * the global concurrency cap, in-flight/peak tracking and the attempt policy ({@link RetryEngine}),
+ * with the shared single-flight/result cache ({@link ResultCache}) in front and per-class
+ * circuit breakers ({@link CircuitBreakers}) gating every attempt.
+ * Strategies only decide which thread (if any) waits while an input is in flight.
+ */
+final class FetchCore {
+    /** Parks cap waiters of the async path on virtual threads rather than pool threads. */
+    private static final Executor ADMISSION = r -> Thread.ofVirtual().name("fetch-admit").start(r);
+
+    private final HostBulkheads.Session hosts;
+    private final Semaphore cap;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger peak = new AtomicInteger();
+    private final RetryEngine<FetchResult> retries;
+    private final ResultCache.Session cache;
+    private final CircuitBreakers.Session breakers;
+    private final LatencyBreakdown latency = new LatencyBreakdown();
+
+    FetchCore() {
+        this(HostBulkheads.fromSystemProperties(), capFromProps(),
+                RetryEngine.fromSystemProperties(FetchResult::success, FetchResult::retryable),
+                ResultCache.SHARED.session(ResultCache.Config.fromSystemProperties()),
+                CircuitBreakers.SHARED.session(CircuitBreakers.Config.fromSystemProperties()));
+    }
+
+    FetchCore(HostBulkheads.Session hosts, Semaphore cap, RetryEngine<FetchResult> retries,
+              ResultCache.Session cache, CircuitBreakers.Session breakers) {
+        this.hosts = hosts;
+        this.cap = cap;
+        this.retries = retries;
+        this.cache = cache;
+        this.breakers = breakers;
+    }
+
+    /** Optional cap via -Dio.cap (or the older -Dio.cf.cap); null = uncapped. */
+    static Semaphore capFromProps() {
+        Integer c = Integer.getInteger("io.cap", Integer.getInteger("io.cf.cap", null));
+        return (c != null) ? new Semaphore(Math.max(1, c)) : null;
+    }
+
+    int peakConcurrency() {
+        return peak.get();
+    }
+
+    AttemptStats attemptStats() {
+        return retries.stats();
+    }
+
+    HostBulkheads.Session hosts() {
+        return hosts;
+    }
+
+    CacheStats cacheStats() {
+        return cache.stats();
+    }
+
+    CircuitBreakers.Session breakers() {
+        return breakers;
+    }
+
+    LatencyBreakdown latency() {
+        return latency;
+    }
+
+    /**
+     * Serves {@code in} from the cache or an in-flight duplicate when possible, fails it fast when its
+     * circuit is open, otherwise starts it with {@code start}. Called before a strategy is involved,
+     * so duplicates and short circuits take no thread or permit.
+     */
+    CompletableFuture<FetchResult> submit(String in, Supplier<CompletableFuture<FetchResult>> start) {
+        return cache.get(in, () -> {
+            CircuitBreakers.Breaker b = breakers.forInput(in);
+            return b != null && breakers.rejectsNow(b)
+                    ? CompletableFuture.completedFuture(FetchResult.circuitOpen(in))
+                    : start.get();
+        });
+    }
+
+    /** Blocking fetch queued now. */
+    FetchResult fetchBlocking(String in) {
+        return fetchBlocking(in, System.nanoTime());
+    }
+
+    /**
+     * Blocking fetch: the calling thread waits for its bulkhead, the cap and every attempt.
+     * {@code queuedAtNanos} is when the strategy accepted the input, so pool queueing counts as queue wait.
+     */
+    FetchResult fetchBlocking(String in, long queuedAtNanos) {
+        HostBulkheads.Bulkhead host = hosts.forInput(in);
+        boolean hostAcquired = false, acquired = false;
+        long start = 0;
+        AtomicLong rtt = new AtomicLong();
+        FetchResult r = null;
+        try {
+            host.acquire();
+            hostAcquired = true;
+            hosts.admitted(in, host);
+            if (cap != null) { cap.acquire(); acquired = true; }
+            peak.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                start = System.nanoTime();
+                boolean sim = SimulatedBackend.isSimulated(in);
+                int toFail = sim ? SimulatedBackend.failuresBeforeSuccessFor(in) : 0;
+                CircuitBreakers.Breaker b = breakers.forInput(in);
+                AtomicInteger tries = new AtomicInteger();
+                r = retries.execute(LatencyTracker.classOf(in),
+                        n -> guarded(b, in, tries, rtt, () -> sim ? SimulatedBackend.attempt(in, n < toFail) : HttpFetch.fetch(in)),
+                        () -> FetchResult.failed(in, HttpFetch.STATUS_TIMEOUT));
+                return timed(r, queuedAtNanos, start, tries.get());
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            return FetchResult.failed(in, HttpFetch.STATUS_CANCELLED);
+        } finally {
+            if (acquired) cap.release();
+            if (hostAcquired) settle(host, rtt.get(), r);
+        }
+    }
+
+    /** Non-blocking fetch: timers and sendAsync drive the attempts, no thread waits while in flight. */
+    CompletableFuture<FetchResult> fetchAsync(String in) {
+        long queuedAt = System.nanoTime();
+        HostBulkheads.Bulkhead host = hosts.forInput(in);
+        return admit(host).thenCompose(admitted -> {
+            if (!admitted) return CompletableFuture.completedFuture(FetchResult.failed(in, HttpFetch.STATUS_CANCELLED));
+            hosts.admitted(in, host);
+            peak.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            long start = System.nanoTime();
+            boolean sim = SimulatedBackend.isSimulated(in);
+            int toFail = sim ? SimulatedBackend.failuresBeforeSuccessFor(in) : 0;
+            CircuitBreakers.Breaker b = breakers.forInput(in);
+            AtomicInteger tries = new AtomicInteger();
+            AtomicLong rtt = new AtomicLong();
+            return retries.executeAsync(LatencyTracker.classOf(in),
+                            n -> guardedAsync(b, in, tries, rtt, () -> sim ? SimulatedBackend.attemptAsync(in, n < toFail) : HttpFetch.fetchAsync(in)),
+                            () -> FetchResult.failed(in, HttpFetch.STATUS_TIMEOUT))
+                    .thenApply(r -> timed(r, queuedAt, start, tries.get()))
+                    .whenComplete((r, err) -> {
+                        inFlight.decrementAndGet();
+                        if (cap != null) cap.release();
+                        settle(host, rtt.get(), err == null ? r : null);
+                    });
+        });
+    }
+
+    /**
+     * Takes a bulkhead slot then a cap permit without blocking the caller: fast path,
+     * else a parked virtual thread. On {@code false} nothing is held.
+     */
+    private CompletableFuture<Boolean> admit(HostBulkheads.Bulkhead host) {
+        if (host.tryAcquire()) {
+            if (cap == null || cap.tryAcquire()) return CompletableFuture.completedFuture(true);
+            return CompletableFuture.supplyAsync(() -> acquireCap(host), ADMISSION);
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                host.acquire();
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+            return acquireCap(host);
+        }, ADMISSION);
+    }
+
+    private boolean acquireCap(HostBulkheads.Bulkhead host) {
+        if (cap == null) return true;
+        try {
+            cap.acquire();
+            return true;
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            host.abandon();
+            return false;
+        }
+    }
+
+    /** Stamps the timing breakdown on a finished input and adds it to the run's histograms. */
+    private FetchResult timed(FetchResult r, long queuedAtNanos, long startNanos, int attempts) {
+        long now = System.nanoTime();
+        long queueNanos = Math.max(0, startNanos - queuedAtNanos), fetchNanos = now - startNanos;
+        latency.recordInput(queueNanos, fetchNanos, attempts);
+        return r.withTiming(Duration.ofNanos(fetchNanos).toMillis(), Duration.ofNanos(queueNanos).toMillis(), attempts);
+    }
+
+    /**
+     * One attempt through the breaker: fails fast when open, otherwise times it and feeds it the outcome.
+     * A completed attempt's duration goes to {@code rtt}, the single round trip the host limiter learns from.
+     */
+    private FetchResult guarded(CircuitBreakers.Breaker b, String in, AtomicInteger tries, AtomicLong rtt,
+                                Supplier<FetchResult> attempt) {
+        if (b != null && !breakers.tryAcquire(b)) return FetchResult.circuitOpen(in);
+        tries.incrementAndGet();
+        long t0 = System.nanoTime();
+        FetchResult r = attempt.get();
+        long took = System.nanoTime() - t0;
+        boolean cancelled = Thread.currentThread().isInterrupted(); // lost hedge or timed out, not a backend outcome
+        if (!cancelled) {
+            latency.recordAttempt(took);
+            rtt.set(took);
+        }
+        if (b != null) {
+            if (cancelled) breakers.release(b);
+            else breakers.onResult(b, r.success(), took);
+        }
+        return r;
+    }
+
+    private CompletableFuture<FetchResult> guardedAsync(CircuitBreakers.Breaker b, String in, AtomicInteger tries, AtomicLong rtt,
+                                                        Supplier<CompletableFuture<FetchResult>> attempt) {
+        if (b != null && !breakers.tryAcquire(b)) return CompletableFuture.completedFuture(FetchResult.circuitOpen(in));
+        tries.incrementAndGet();
+        long t0 = System.nanoTime();
+        CompletableFuture<FetchResult> f = attempt.get();
+        f.whenComplete((r, err) -> {
+            long took = System.nanoTime() - t0;
+            if (err == null) {
+                latency.recordAttempt(took);
+                rtt.set(took);
+            }
+            if (b == null) return;
+            if (err != null) breakers.release(b);
+            else breakers.onResult(b, r.success(), took);
+        });
+        return f;
+    }
+
+    /**
+     * Frees the bulkhead slot; only real outcomes feed its limiter, cancellations and short circuits do not.
+     * The sample is the last completed attempt's round trip, not the input's total with retries and backoff.
+     */
+    private static void settle(HostBulkheads.Bulkhead host, long rttNanos, FetchResult r) {
+        if (r == null || r.status() == HttpFetch.STATUS_CANCELLED || r.shortCircuited()) host.abandon();
+        else host.release(rttNanos, r.success());
+    }
+}
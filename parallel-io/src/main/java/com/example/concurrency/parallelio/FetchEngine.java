@@ -0,0 +1,315 @@
+package com.example.concurrency.parallelio;
+
+import com.example.concurrency.metrics.ContinuousRecorder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Single fetch engine behind {@link ParallelFetchCf} and {@link ParallelFetchLoom}.
+ * pluggable execution strategy: fixed pool + CF, virtual threads, structured scope, async NIO
+ * every strategy gets the same cap (-Dio.cap), peak tracking, retries/hedging and summary
+ * optional adaptive per-host bulkheads (-Dio.host.limit, see {@link HostBulkheads})
+ * duplicate ids are coalesced and optionally cached across runs (see {@link ResultCache})
+ * optional circuit breakers per input class (-Dio.breaker.enabled, see {@link CircuitBreakers})
+ * latency breakdown (queue/attempt/fetch/total, p50/p90/p99/max) per run, optionally appended as
+ * a JSON line to -Dio.report.json (see {@link LatencyBreakdown})
+ * results, attempts and timings are also recorded in the shared metrics registry (see {@link IoMetrics})
+ * optional JFR ring buffer dumped when the fetch p99 crosses -Djfr.trigger.fetch.p99.millis (see {@link ContinuousRecorder})
+ * constant-memory aggregation of huge fan-outs via {@link #aggregate} (see {@link ResultAggregate})
+ * strategy is switched by -Dio.strategy=cf|loom|scope|async (see {@link #main})
+ */
+public final class FetchEngine {
+    private FetchEngine() {}
+
+    /** Where each input's work runs. */
+    public enum Strategy {
+        /** CompletableFuture on a -Dio.pool pool: per run, shared or managed (-Dio.cf.executor, see {@link CfExecutors}). */
+        FIXED_POOL_CF("CF"),
+        /** One virtual thread per input. */
+        VIRTUAL_THREADS("Loom"),
+        /** One structured scope per run (JDK 21 preview; needs --enable-preview). */
+        STRUCTURED_SCOPE("Scope"),
+        /** Non-blocking: timers and sendAsync, no thread per input. */
+        ASYNC_NIO("Async");
+
+        private final String label;
+
+        Strategy(String label) {
+            this.label = label;
+        }
+
+        public String label() {
+            return label;
+        }
+
+        /** Parses -Dio.strategy; an unknown value is an error rather than a silent {@link #FIXED_POOL_CF}. */
+        public static Strategy parse(String s) {
+            return switch (s.trim().toLowerCase(Locale.ROOT)) {
+                case "cf", "fixed", "fixed_pool_cf" -> FIXED_POOL_CF;
+                case "loom", "virtual", "vt", "virtual_threads" -> VIRTUAL_THREADS;
+                case "scope", "structured", "structured_scope" -> STRUCTURED_SCOPE;
+                case "async", "nio", "async_nio" -> ASYNC_NIO;
+                default -> throw new IllegalArgumentException("unknown io.strategy '" + s
+                        + "'; expected one of cf, loom, scope, async");
+            };
+        }
+
+        ExecutionStrategy open(FetchCore core) {
+            return switch (this) {
+                case FIXED_POOL_CF -> CfExecutors.open(core);
+                case VIRTUAL_THREADS -> new ExecutionStrategy.VirtualThreads(core);
+                case STRUCTURED_SCOPE -> new ScopedStrategy(core);
+                case ASYNC_NIO -> new ExecutionStrategy.AsyncNio(core);
+            };
+        }
+
+        /** Default in-flight window for {@link #stream}: 4 x io.pool for the per-run pool, 10000 otherwise. */
+        int defaultWindow() {
+            return this == FIXED_POOL_CF && CfExecutors.configuredMode() == CfExecutors.Mode.FIXED
+                    ? 4 * Integer.getInteger("io.pool", 8) : 10_000;
+        }
+    }
+
+    // ---- visibility for tests (most recent run, any strategy) ----
+    private static volatile int lastPeakConcurrency = 0;
+    private static volatile AttemptStats lastAttemptStats = AttemptStats.EMPTY;
+    private static volatile CacheStats lastCacheStats = CacheStats.EMPTY;
+    private static volatile BreakerStats lastBreakerStats = BreakerStats.EMPTY;
+    private static volatile LatencyBreakdown lastLatency = LatencyBreakdown.EMPTY;
+    private static volatile Map<String, Integer> lastHostPeaks = Map.of();
+    private static volatile Map<String, Integer> lastHostLimits = Map.of();
+    public static int lastPeakConcurrency() { return lastPeakConcurrency; }
+    public static AttemptStats lastAttemptStats() { return lastAttemptStats; }
+    public static CacheStats lastCacheStats() { return lastCacheStats; }
+    public static BreakerStats lastBreakerStats() { return lastBreakerStats; }
+    public static LatencyBreakdown lastLatency() { return lastLatency; }
+    /** Peak in-flight per destination (host, or id prefix for simulated inputs). */
+    public static Map<String, Integer> lastHostPeaks() { return lastHostPeaks; }
+    /** Final adaptive limit per destination (0 when -Dio.host.limit is unset). */
+    public static Map<String, Integer> lastHostLimits() { return lastHostLimits; }
+
+    /** Strategy selected by -Dio.strategy (default cf). */
+    public static Strategy configuredStrategy() {
+        return Strategy.parse(System.getProperty("io.strategy", "cf"));
+    }
+
+    /** Runs every input, returns results sorted by latency (non-decreasing) and prints a summary. */
+    public static List<FetchResult> run(Strategy strategy, List<String> inputs) throws InterruptedException {
+        ConcurrentLinkedQueue<FetchResult> done = new ConcurrentLinkedQueue<>();
+        FetchCore core = new FetchCore();
+        execute(strategy, core, inputs, Integer.MAX_VALUE, done::add);
+
+        List<FetchResult> results = new ArrayList<>(done);
+        results.sort(Comparator.comparingLong(FetchResult::millis));
+        int ok = 0, fail = 0;
+        for (FetchResult r : results) if (r.success()) ok++; else fail++;
+        printSummary(strategy, core, "summary: success=" + ok + " failure=" + fail + " total=" + results.size());
+        return results;
+    }
+
+    /**
+     * Streams results to {@code onResult} as each input completes (completion order). Inputs are
+     * pulled lazily and at most -Dio.stream.window are started but unfinished, so memory stays
+     * bounded for very large fan-outs. The callback may run concurrently on strategy threads. If it
+     * throws, no further inputs are started and its first exception is rethrown once the started ones finish.
+     */
+    public static RunningSummary stream(Strategy strategy, Iterable<String> inputs, Consumer<? super FetchResult> onResult)
+            throws InterruptedException {
+        int window = Math.max(1, Integer.getInteger("io.stream.window", strategy.defaultWindow()));
+        RunningSummary summary = new RunningSummary();
+        FetchCore core = new FetchCore();
+        execute(strategy, core, inputs, window, r -> {
+            summary.record(r.success(), r.millis());
+            onResult.accept(r);
+        });
+        printSummary(strategy, core, "stream summary: " + summary);
+        return summary;
+    }
+
+    /**
+     * Like {@link #stream}, but folds every result into a fixed-size {@link ResultAggregate} (counts,
+     * latency histogram, the {@code topK} slowest) instead of handing it out. Memory stays constant in
+     * the number of inputs: no per-input futures, results or sort.
+     */
+    public static ResultAggregate aggregate(Strategy strategy, Iterable<String> inputs, int topK)
+            throws InterruptedException {
+        int window = Math.max(1, Integer.getInteger("io.stream.window", strategy.defaultWindow()));
+        ResultAggregate agg = new ResultAggregate(topK);
+        FetchCore core = new FetchCore();
+        execute(strategy, core, inputs, window, agg::record);
+        printSummary(strategy, core, "aggregate: " + agg + " slowest=" + agg.slowest());
+        return agg;
+    }
+
+    /**
+     * Fans out under the module's JFR ring buffer, publishes the run's stats and exports its latency report.
+     */
+    private static void execute(Strategy strategy, FetchCore core, Iterable<String> inputs, int window,
+                                Consumer<FetchResult> onDone) throws InterruptedException {
+        try (RunObserver run = new RunObserver(strategy, core)) {
+            fanOut(strategy, core, inputs, window, run.counting() ? r -> {
+                onDone.accept(r);
+                run.finished(r);
+            } : onDone);
+            run.publish();
+        }
+        core.latency().exportIfConfigured(strategy.label());
+    }
+
+    /**
+     * One run under the module's JFR ring buffer (on unless -Djfr.enabled=false): a {@link FetchRunEvent}
+     * spanning the run, and a dump of the ring buffer when the fetch p99 exceeds -Djfr.trigger.fetch.p99.millis
+     * (0 = off), checked every 1024 results and at the end. Used by {@link #execute} and by
+     * {@link ParallelFetchScoped}, so every strategy is observable the same way.
+     */
+    static final class RunObserver implements AutoCloseable {
+        private final Strategy strategy;
+        private final FetchCore core;
+        private final ContinuousRecorder recorder = ContinuousRecorder.startIfConfigured("parallel-io");
+        private final FetchRunEvent ev = new FetchRunEvent();
+        private final long p99Limit;
+        private final boolean counting;
+        private final LongAdder finished = new LongAdder(), failures = new LongAdder();
+        private final AtomicLong sinceCheck = new AtomicLong();
+
+        RunObserver(Strategy strategy, FetchCore core) {
+            this.strategy = strategy;
+            this.core = core;
+            this.p99Limit = recorder.enabled() ? Long.getLong("jfr.trigger.fetch.p99.millis", 0L) : 0L;
+            this.counting = ev.isEnabled() || p99Limit > 0;
+            if (counting) ev.begin();
+        }
+
+        /** False when neither the run event nor the trigger is on, so results need not be passed in. */
+        boolean counting() {
+            return counting;
+        }
+
+        /** Counts one finished input; may run concurrently on strategy threads. */
+        void finished(FetchResult r) {
+            if (!counting) return;
+            finished.increment();
+            if (!r.success()) failures.increment();
+            if (p99Limit > 0 && (sinceCheck.incrementAndGet() & 1023) == 0) checkP99();
+        }
+
+        /** Publishes the run's stats, then commits the run event and checks the trigger a last time. */
+        void publish() {
+            FetchEngine.publish(strategy, core);
+            if (counting && ev.shouldCommit()) commitRun(ev, strategy, core, finished.sum(), failures.sum());
+            if (p99Limit > 0) checkP99();
+        }
+
+        private void checkP99() {
+            double p99 = core.latency().fetch().p99();
+            if (p99 > p99Limit) {
+                recorder.dump("fetch-p99", String.format(Locale.ROOT, "%s p99=%.1fms threshold=%dms",
+                        strategy.label(), p99, p99Limit));
+            }
+        }
+
+        @Override public void close() {
+            recorder.close();
+        }
+    }
+
+    private static void commitRun(FetchRunEvent ev, Strategy strategy, FetchCore core, long inputs, long failures) {
+        LatencyBreakdown.Percentiles fetch = core.latency().fetch();
+        ev.strategy = strategy.label();
+        ev.inputs = inputs;
+        ev.failures = failures;
+        ev.attempts = lastAttemptStats.attempts();
+        ev.peakConcurrency = lastPeakConcurrency;
+        ev.fetchP50 = Math.round(fetch.p50());
+        ev.fetchP99 = Math.round(fetch.p99());
+        ev.fetchMax = Math.round(fetch.max());
+        ev.commit();
+    }
+
+    /**
+     * Starts every input with at most {@code window} unfinished. An exception from {@code onDone} stops the
+     * intake and the first one is rethrown after the tail, so a failing consumer fails the run.
+     */
+    private static void fanOut(Strategy strategy, FetchCore core, Iterable<String> inputs, int window,
+                               Consumer<FetchResult> onDone) throws InterruptedException {
+        Semaphore slots = new Semaphore(window);
+        IoMetrics metrics = IoMetrics.of(strategy);
+        AtomicReference<Throwable> sinkFailure = new AtomicReference<>();
+        try (ExecutionStrategy exec = strategy.open(core)) {
+            for (String in : inputs) {
+                slots.acquire();
+                if (sinkFailure.get() != null) {
+                    slots.release();
+                    break;
+                }
+                CompletableFuture<FetchResult> f;
+                try {
+                    f = core.submit(in, () -> exec.start(in));
+                } catch (RuntimeException | Error e) {
+                    slots.release();
+                    throw e;
+                }
+                f.whenComplete((r, err) -> {
+                    try {
+                        FetchResult done = err == null ? r : FetchResult.failed(in, HttpFetch.STATUS_IO_ERROR);
+                        metrics.record(done);
+                        onDone.accept(done);
+                    } catch (Throwable t) {
+                        sinkFailure.compareAndSet(null, t); // whenComplete would swallow it
+                    } finally {
+                        slots.release();
+                    }
+                });
+            }
+            slots.acquire(window); // wait for the tail
+        }
+        Throwable t = sinkFailure.get();
+        if (t instanceof RuntimeException re) throw re;
+        if (t instanceof Error e) throw e;
+        if (t != null) throw new IllegalStateException("result consumer failed", t);
+    }
+
+    static void publish(Strategy strategy, FetchCore core) {
+        lastAttemptStats = core.attemptStats();
+        lastCacheStats = core.cacheStats();
+        lastBreakerStats = core.breakers().stats();
+        lastLatency = core.latency();
+        lastPeakConcurrency = core.peakConcurrency(); // <- exposes to tests
+        lastHostPeaks = Map.copyOf(core.hosts().peaks());
+        lastHostLimits = Map.copyOf(core.hosts().limits());
+        IoMetrics.of(strategy).publish(lastAttemptStats, lastCacheStats, lastPeakConcurrency);
+    }
+
+    /** Prints the summary line plus attempt, host, cache, breaker and latency reports (unless -Dio.quiet). */
+    static void printSummary(Strategy strategy, FetchCore core, String summary) {
+        if (Boolean.getBoolean("io.quiet")) return;
+        String tag = "[ParallelIO/" + strategy.label() + "] ";
+        System.out.println(tag + summary);
+        System.out.println(tag + "attempts: " + lastAttemptStats + " peak=" + lastPeakConcurrency);
+        System.out.println(tag + "hosts: " + core.hosts().describe());
+        System.out.println(tag + "cache: " + lastCacheStats);
+        System.out.println(tag + "breakers: " + core.breakers().describe());
+        System.out.println(core.latency().report(tag));
+    }
+
+    static List<String> inputsOrDefault(String[] args, List<String> defaults) {
+        return (args != null && args.length > 0) ? Arrays.asList(args) : defaults;
+    }
+
+    /** Runs the configured strategy (-Dio.strategy) over the arguments. */
+    public static void main(String[] args) throws Exception {
+        List<FetchResult> r = run(configuredStrategy(), inputsOrDefault(args, List.of("simA", "simB", "simC")));
+        for (FetchResult res : r) System.out.println(res);
+    }
+}
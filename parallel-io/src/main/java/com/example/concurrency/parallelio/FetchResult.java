@@ -0,0 +1,63 @@
+package com.example.concurrency.parallelio;
+
+/**
+ * Result of one fetch, shared by every execution strategy.
+ * {@code millis} covers all attempts and backoff; {@code queueMillis} the wait before the first attempt
+ * (thread, host bulkhead, cap); {@code attempts} counts retries and hedges too (0 if never attempted).
+ * {@code bytes} is the streamed body size for real fetches (0 for simulated ones).
+ */
+public record FetchResult(String id, long millis, boolean simulated, int status, long bytes,
+                          long queueMillis, int attempts) {
+
+    /** Not attempted: the input's circuit breaker is open (same for simulated and real inputs). */
+    public static final int STATUS_CIRCUIT_OPEN = -2;
+
+    public FetchResult(String id, long millis, boolean simulated, int status, long bytes) {
+        this(id, millis, simulated, status, bytes, 0L, 1);
+    }
+
+    public FetchResult(String id, long millis, boolean simulated, int status) {
+        this(id, millis, simulated, status, 0L);
+    }
+
+    /** Success: simulated OK (status==0) or real HTTP 2xx. */
+    public boolean success() {
+        return simulated ? status == 0 : (status >= 200 && status < 300);
+    }
+
+    /** Worth retrying: simulated failures, and real 5xx/408/429 or transport errors (not other 4xx, not open circuits). */
+    public boolean retryable() {
+        if (shortCircuited()) return false;
+        return simulated || status >= 500 || status == 408 || status == 429;
+    }
+
+    /** Failed fast because the circuit breaker for the input's class was open. */
+    public boolean shortCircuited() {
+        return status == STATUS_CIRCUIT_OPEN;
+    }
+
+    /** Same result with the end-to-end duration (all attempts and backoffs). */
+    FetchResult withMillis(long totalMillis) {
+        return new FetchResult(id, totalMillis, simulated, status, bytes, queueMillis, attempts);
+    }
+
+    /** Same result with the run's timing breakdown. */
+    FetchResult withTiming(long fetchMillis, long queueMillis, int attempts) {
+        return new FetchResult(id, fetchMillis, simulated, status, bytes, queueMillis, attempts);
+    }
+
+    /** Failure with no attempt result (cancelled, timed out, crashed); {@code httpStatus} applies to real inputs. */
+    static FetchResult failed(String id, int httpStatus) {
+        return SimulatedBackend.isSimulated(id)
+                ? new FetchResult(id, -1, true, 1, 0L, 0L, 0)
+                : new FetchResult(id, -1, false, httpStatus, 0L, 0L, 0);
+    }
+
+    static FetchResult circuitOpen(String id) {
+        return new FetchResult(id, 0, SimulatedBackend.isSimulated(id), STATUS_CIRCUIT_OPEN, 0L, 0L, 0);
+    }
+
+    @Override public String toString() {
+        return id + " -> " + millis + "ms, success=" + success();
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.concurrency.parallelio;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/** One finished {@link FetchEngine} run, recorded into JFR (spans the whole fan-out). */
+@Name("com.example.concurrency.FetchRun")
+@Label("Fetch Run")
+@Category({"Concurrency Demo", "Parallel IO"})
+@Description("Strategy, outcome counts, peak concurrency and fetch percentiles of a fan-out")
+final class FetchRunEvent extends Event {
+    @Label("Strategy") String strategy;
+    @Label("Inputs") long inputs;
+    @Label("Failures") long failures;
+    @Label("Attempts") long attempts;
+    @Label("Peak Concurrency") int peakConcurrency;
+    @Label("Fetch p50") @Timespan(Timespan.MILLISECONDS) long fetchP50;
+    @Label("Fetch p99") @Timespan(Timespan.MILLISECONDS) long fetchP99;
+    @Label("Fetch Max") @Timespan(Timespan.MILLISECONDS) long fetchMax;
+}
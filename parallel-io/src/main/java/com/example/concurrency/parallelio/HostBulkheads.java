@@ -0,0 +1,235 @@
+package com.example.concurrency.parallelio;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Per-destination bulkheads keyed by {@link LatencyTracker#classOf} (host for URLs, prefix for sims).
+ * in-flight and peak are always tracked per destination
+ * limiting is opt-in via -Dio.host.limit (initial limit per destination)
+ * the limit adapts Vegas-style between -Dio.host.limit.min and -Dio.host.limit.max:
+ * grows while latency stays near the best seen, shrinks on queueing or failures
+ * bulkheads are shared by every run with the same settings ({@link #shared}), so a limit learned in one
+ * run carries into the next; peaks are reported per run ({@link Session})
+ */
+final class HostBulkheads {
+
+    /** Limiter settings; {@code initial <= 0} means track only, never block. */
+    record Config(int initial, int min, int max, boolean adaptive) {
+        static final Config UNLIMITED = new Config(0, 1, Integer.MAX_VALUE, false);
+
+        static Config fromSystemProperties() {
+            int initial = Integer.getInteger("io.host.limit", 0);
+            if (initial <= 0) return UNLIMITED;
+            int min = Math.max(1, Integer.getInteger("io.host.limit.min", 1));
+            int max = Math.max(min, Integer.getInteger("io.host.limit.max", 200));
+            return new Config(Math.max(min, Math.min(max, initial)), min, max,
+                    Boolean.parseBoolean(System.getProperty("io.host.limit.adaptive", "true")));
+        }
+
+        boolean limited() {
+            return initial > 0;
+        }
+    }
+
+    /** One set of bulkheads per distinct config, kept for the life of the process. */
+    private static final ConcurrentHashMap<Config, HostBulkheads> SHARED = new ConcurrentHashMap<>();
+
+    private final Config cfg;
+    private final ConcurrentHashMap<String, Bulkhead> byHost = new ConcurrentHashMap<>();
+
+    HostBulkheads(Config cfg) {
+        this.cfg = cfg;
+    }
+
+    /** The process-wide bulkheads for {@code cfg}: every run with these settings shares their limits. */
+    static HostBulkheads shared(Config cfg) {
+        return SHARED.computeIfAbsent(cfg, HostBulkheads::new);
+    }
+
+    /** A run's view of the shared bulkheads for the -Dio.host.limit settings. */
+    static Session fromSystemProperties() {
+        return shared(Config.fromSystemProperties()).session();
+    }
+
+    Session session() {
+        return new Session();
+    }
+
+    Bulkhead forInput(String id) {
+        return forHost(LatencyTracker.classOf(id));
+    }
+
+    Bulkhead forHost(String host) {
+        return byHost.computeIfAbsent(host, h -> new Bulkhead(cfg));
+    }
+
+    /** One run's view: the shared bulkheads plus the peaks this run saw. */
+    final class Session {
+        private final ConcurrentHashMap<String, AtomicInteger> peaks = new ConcurrentHashMap<>();
+
+        private Session() {}
+
+        Bulkhead forInput(String id) {
+            return HostBulkheads.this.forInput(id);
+        }
+
+        /** Notes a slot taken on {@code id}'s bulkhead; the peak counts other runs' in-flight inputs too. */
+        void admitted(String id, Bulkhead b) {
+            int now = b.inFlight();
+            peaks.computeIfAbsent(LatencyTracker.classOf(id), h -> new AtomicInteger()).accumulateAndGet(now, Math::max);
+        }
+
+        /** Peak in-flight per destination during this run, sorted by destination. */
+        Map<String, Integer> peaks() {
+            Map<String, Integer> out = new TreeMap<>();
+            peaks.forEach((h, p) -> out.put(h, p.get()));
+            return out;
+        }
+
+        /** Current limit per destination this run used (0 when limiting is off), sorted by destination. */
+        Map<String, Integer> limits() {
+            Map<String, Integer> out = new TreeMap<>();
+            peaks.keySet().forEach(h -> out.put(h, forHost(h).limit()));
+            return out;
+        }
+
+        /** e.g. {@code sim[peak=4 limit=6] example.com[peak=2 limit=3]}. */
+        String describe() {
+            StringBuilder sb = new StringBuilder();
+            peaks().forEach((h, p) -> {
+                if (sb.length() > 0) sb.append(' ');
+                sb.append(h).append("[peak=").append(p);
+                if (cfg.limited()) sb.append(" limit=").append(forHost(h).limit());
+                sb.append(']');
+            });
+            return sb.toString();
+        }
+    }
+
+    /**
+     * One destination's slot pool. Acquire before the global cap so a slow destination
+     * queues on its own bulkhead instead of holding global permits while it waits.
+     */
+    static final class Bulkhead {
+        private final Config cfg;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition freed = lock.newCondition();
+        private double limit;
+        private int inFlight;
+        private int peak;
+        private long minRttNanos = Long.MAX_VALUE;
+
+        Bulkhead(Config cfg) {
+            this.cfg = cfg;
+            this.limit = cfg.limited() ? cfg.initial() : 0;
+        }
+
+        /** Waits for a slot. */
+        void acquire() throws InterruptedException {
+            lock.lockInterruptibly();
+            try {
+                while (cfg.limited() && inFlight >= (int) limit) freed.await();
+                admitLocked();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /** Takes a slot only if one is free right now. */
+        boolean tryAcquire() {
+            lock.lock();
+            try {
+                if (cfg.limited() && inFlight >= (int) limit) return false;
+                admitLocked();
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void admitLocked() {
+            inFlight++;
+            if (inFlight > peak) peak = inFlight;
+        }
+
+        /** Frees a slot and feeds the round trip of the finished input to the limiter. */
+        void release(long rttNanos, boolean ok) {
+            lock.lock();
+            try {
+                int before = inFlight--;
+                if (cfg.limited() && cfg.adaptive()) adapt(rttNanos, ok, before);
+                freed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /** Frees a slot without a limiter sample (cancelled or never started). */
+        void abandon() {
+            lock.lock();
+            try {
+                inFlight--;
+                freed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Vegas: queue = limit * (1 - minRtt/rtt) estimates how many requests sit in the
+         * destination's queue. Below alpha grow, above beta shrink; failures shrink by 10%.
+         * Growth only when the limit was actually in use, so idle hosts do not drift up.
+         */
+        private void adapt(long rttNanos, boolean ok, int inFlightAtSample) {
+            if (!ok) {
+                limit = clamp(limit * 0.9);
+                return;
+            }
+            if (rttNanos <= 0) return;
+            if (rttNanos < minRttNanos) minRttNanos = rttNanos;
+            double log = Math.max(1.0, Math.log10(limit));
+            double queue = limit * (1.0 - (double) minRttNanos / rttNanos);
+            if (queue < 3 * log) {
+                if (inFlightAtSample * 2 >= (int) limit) limit = clamp(limit + log);
+            } else if (queue > 6 * log) {
+                limit = clamp(limit - log);
+            }
+        }
+
+        private double clamp(double v) {
+            return Math.max(cfg.min(), Math.min(cfg.max(), v));
+        }
+
+        int limit() {
+            lock.lock();
+            try {
+                return (int) limit;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        int peak() {
+            lock.lock();
+            try {
+                return peak;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        int inFlight() {
+            lock.lock();
+            try {
+                return inFlight;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
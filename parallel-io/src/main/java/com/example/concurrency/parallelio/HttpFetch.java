@@ -0,0 +1,139 @@
+package com.example.concurrency.parallelio;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpConnectTimeoutException;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Flow;
+
+/**
+ * Real HTTP fetch path shared by the fetchers.
+ * one long-lived client (HTTP/2 preferred, connections pooled and reused across runs)
+ * bodies are streamed and only counted, never buffered
+ * transport failures map to synthetic statuses so {@code Result.success()} stays 2xx-only
+ */
+final class HttpFetch {
+    private HttpFetch() {}
+
+    /** Request timed out (connect or response). */
+    static final int STATUS_TIMEOUT = 504;
+    /** Could not connect. */
+    static final int STATUS_CONNECT_FAILED = 503;
+    /** Other I/O failure mid-exchange. */
+    static final int STATUS_IO_ERROR = 502;
+    /** Attempt was interrupted/cancelled (nginx's "client closed request"). */
+    static final int STATUS_CANCELLED = 499;
+    /** Not an http(s) URL or not a valid one; a 4xx, so it is not retried. */
+    static final int STATUS_BAD_INPUT = 400;
+
+    /** Status plus counted body bytes of one exchange. */
+    record Response(int status, long bytes) {}
+
+    private static final class Holder {
+        static final HttpClient CLIENT = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofMillis(Long.getLong("io.http.connect.timeout.millis", 5_000L)))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+    }
+
+    /** The shared client; created on first real fetch. */
+    static HttpClient client() {
+        return Holder.CLIENT;
+    }
+
+    static boolean isHttp(String id) {
+        return id != null && (id.startsWith("http://") || id.startsWith("https://"));
+    }
+
+    private static HttpRequest request(String url) {
+        return HttpRequest.newBuilder(URI.create(url))
+                .timeout(Duration.ofMillis(Long.getLong("io.http.timeout.millis", 10_000L)))
+                .GET()
+                .build();
+    }
+
+    /** Blocking exchange (cheap on virtual threads); failures come back as synthetic statuses. */
+    static Response send(String url) {
+        try {
+            HttpResponse<Long> rsp = client().send(request(url), countingBody());
+            return new Response(rsp.statusCode(), rsp.body());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new Response(STATUS_CANCELLED, 0);
+        } catch (IOException e) {
+            return new Response(statusFor(e), 0);
+        } catch (IllegalArgumentException e) {
+            return new Response(STATUS_BAD_INPUT, 0);
+        }
+    }
+
+    /** Non-blocking exchange; no thread is held while waiting. Fails only if the caller cancels/times it out. */
+    static CompletableFuture<Response> sendAsync(String url) {
+        HttpRequest req;
+        try {
+            req = request(url);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(new Response(STATUS_BAD_INPUT, 0));
+        }
+        CompletableFuture<HttpResponse<Long>> raw = client().sendAsync(req, countingBody());
+        CompletableFuture<Response> out = raw.handle((rsp, err) -> err == null
+                ? new Response(rsp.statusCode(), rsp.body())
+                : new Response(statusFor(err), 0));
+        // A timed-out or cancelled caller aborts the exchange instead of leaving it running.
+        out.whenComplete((r, err) -> { if (err != null) raw.cancel(true); });
+        return out;
+    }
+
+    /** Blocking attempt as a {@link FetchResult}. */
+    static FetchResult fetch(String url) {
+        long start = System.nanoTime();
+        Response rsp = send(url);
+        return new FetchResult(url, Duration.ofNanos(System.nanoTime() - start).toMillis(), false, rsp.status(), rsp.bytes());
+    }
+
+    /** Non-blocking attempt as a {@link FetchResult}; cancelling it aborts the exchange. */
+    static CompletableFuture<FetchResult> fetchAsync(String url) {
+        long start = System.nanoTime();
+        CompletableFuture<Response> rsp = sendAsync(url);
+        CompletableFuture<FetchResult> out = rsp.thenApply(r -> new FetchResult(url,
+                Duration.ofNanos(System.nanoTime() - start).toMillis(), false, r.status(), r.bytes()));
+        out.whenComplete((r, err) -> { if (err != null) rsp.cancel(true); });
+        return out;
+    }
+
+    static int statusFor(Throwable err) {
+        Throwable t = err;
+        while (t instanceof CompletionException && t.getCause() != null) t = t.getCause();
+        if (t instanceof HttpConnectTimeoutException || t instanceof HttpTimeoutException) return STATUS_TIMEOUT;
+        if (t instanceof ConnectException) return STATUS_CONNECT_FAILED;
+        if (t instanceof InterruptedException || t instanceof CancellationException) return STATUS_CANCELLED;
+        return STATUS_IO_ERROR;
+    }
+
+    /** Body handler that counts bytes as they stream in. */
+    static HttpResponse.BodyHandler<Long> countingBody() {
+        return info -> HttpResponse.BodySubscribers.fromSubscriber(new CountingSubscriber(), CountingSubscriber::count);
+    }
+
+    private static final class CountingSubscriber implements Flow.Subscriber<List<ByteBuffer>> {
+        private long count;
+
+        @Override public void onSubscribe(Flow.Subscription s) { s.request(Long.MAX_VALUE); }
+        @Override public void onNext(List<ByteBuffer> items) { for (ByteBuffer b : items) count += b.remaining(); }
+        @Override public void onError(Throwable t) { }
+        @Override public void onComplete() { }
+
+        long count() { return count; }
+    }
+}
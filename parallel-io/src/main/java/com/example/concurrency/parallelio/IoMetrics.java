@@ -0,0 +1,72 @@
+package com.example.concurrency.parallelio;
+
+import com.example.concurrency.metrics.Counter;
+import com.example.concurrency.metrics.Gauge;
+import com.example.concurrency.metrics.Histogram;
+import com.example.concurrency.metrics.MetricsRegistry;
+import com.example.concurrency.metrics.PrometheusExporter;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * The fetch engine's instruments in the shared {@link MetricsRegistry} (io_* metrics, one label set
+ * per strategy). Looked up once per strategy; per result it is a counter bump and two histogram records.
+ */
+final class IoMetrics {
+
+    private static final Map<FetchEngine.Strategy, IoMetrics> BY_STRATEGY = new EnumMap<>(FetchEngine.Strategy.class);
+
+    static {
+        for (FetchEngine.Strategy s : FetchEngine.Strategy.values()) BY_STRATEGY.put(s, new IoMetrics(s.label()));
+    }
+
+    static IoMetrics of(FetchEngine.Strategy s) {
+        PrometheusExporter.startIfConfigured();
+        return BY_STRATEGY.get(s);
+    }
+
+    private final Counter success;
+    private final Counter failure;
+    private final Counter shortCircuited;
+    private final Counter attempts;
+    private final Counter retries;
+    private final Counter hedges;
+    private final Counter cacheHits;
+    private final Counter coalesced;
+    private final Gauge peak;
+    private final Histogram fetch;
+    private final Histogram queue;
+
+    private IoMetrics(String strategy) {
+        MetricsRegistry reg = MetricsRegistry.global();
+        success = reg.counter("io_results_total", "Finished inputs by outcome", "strategy", strategy, "outcome", "success");
+        failure = reg.counter("io_results_total", "Finished inputs by outcome", "strategy", strategy, "outcome", "failure");
+        shortCircuited = reg.counter("io_short_circuited_total", "Inputs rejected by an open circuit breaker", "strategy", strategy);
+        attempts = reg.counter("io_attempts_total", "Attempts, retries and hedges included", "strategy", strategy);
+        retries = reg.counter("io_retries_total", "Retried attempts", "strategy", strategy);
+        hedges = reg.counter("io_hedges_total", "Hedged attempts", "strategy", strategy);
+        cacheHits = reg.counter("io_cache_hits_total", "Inputs served from the result cache", "strategy", strategy);
+        coalesced = reg.counter("io_coalesced_total", "Inputs that joined an in-flight fetch of the same id", "strategy", strategy);
+        peak = reg.gauge("io_peak_concurrency", "Peak in-flight inputs of the last run", "strategy", strategy);
+        fetch = reg.timer("io_fetch_seconds", "Fetch time per input (attempts + backoff)", "strategy", strategy);
+        queue = reg.timer("io_queue_seconds", "Wait before the first attempt (thread, host bulkhead, cap)", "strategy", strategy);
+    }
+
+    void record(FetchResult r) {
+        (r.success() ? success : failure).inc();
+        if (r.shortCircuited()) shortCircuited.inc();
+        if (r.millis() >= 0) fetch.record(r.millis() * 1_000_000L);
+        if (r.attempts() > 0) queue.record(r.queueMillis() * 1_000_000L);
+    }
+
+    /** Adds a finished run's attempt and cache counters and sets its peak. */
+    void publish(AttemptStats a, CacheStats c, int peakConcurrency) {
+        attempts.add(a.attempts());
+        retries.add(a.retries());
+        hedges.add(a.hedges());
+        cacheHits.add(c.hits());
+        coalesced.add(c.coalesced());
+        peak.set(peakConcurrency);
+        PrometheusExporter.writeIfConfigured();
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.concurrency.parallelio;
+
+import com.example.concurrency.metrics.LatencyHistogram;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+
+/**
+ * Per-run latency breakdown of the fetched inputs (cache hits and short circuits are not fetched):
+ * queue   - waiting for a thread, the host bulkhead and the cap
+ * attempt - each attempt on its own (retries and hedges included)
+ * fetch   - attempts plus backoff, i.e. {@link FetchResult#millis()}
+ * total   - queue + fetch
+ * attempts per input
+ * Fixed-size histograms, so memory does not grow with the number of inputs.
+ */
+public final class LatencyBreakdown {
+
+    /** Quantiles in millis (attempt counts for {@link #attemptsPerInput()}). */
+    public record Percentiles(long count, double p50, double p90, double p99, double max) {
+        static Percentiles of(LatencyHistogram h, double scale) {
+            return new Percentiles(h.count(), h.quantile(0.50) / scale, h.quantile(0.90) / scale,
+                    h.quantile(0.99) / scale, h.max() / scale);
+        }
+
+        @Override public String toString() {
+            return String.format(Locale.ROOT, "p50=%.1f p90=%.1f p99=%.1f max=%.1f", p50, p90, p99, max);
+        }
+
+        String toJson() {
+            return String.format(Locale.ROOT, "{\"count\":%d,\"p50\":%.3f,\"p90\":%.3f,\"p99\":%.3f,\"max\":%.3f}",
+                    count, p50, p90, p99, max);
+        }
+    }
+
+    static final LatencyBreakdown EMPTY = new LatencyBreakdown();
+
+    private final LatencyHistogram queue = new LatencyHistogram();
+    private final LatencyHistogram attempt = new LatencyHistogram();
+    private final LatencyHistogram fetch = new LatencyHistogram();
+    private final LatencyHistogram total = new LatencyHistogram();
+    private final LatencyHistogram attempts = new LatencyHistogram();
+
+    void recordAttempt(long nanos) {
+        attempt.recordNanos(nanos);
+    }
+
+    void recordInput(long queueNanos, long fetchNanos, int attemptCount) {
+        queue.recordNanos(queueNanos);
+        fetch.recordNanos(fetchNanos);
+        total.recordNanos(queueNanos + fetchNanos);
+        attempts.recordValue(attemptCount);
+    }
+
+    public Percentiles queue() { return Percentiles.of(queue, 1_000.0); }
+    public Percentiles attempt() { return Percentiles.of(attempt, 1_000.0); }
+    public Percentiles fetch() { return Percentiles.of(fetch, 1_000.0); }
+    public Percentiles total() { return Percentiles.of(total, 1_000.0); }
+    public Percentiles attemptsPerInput() { return Percentiles.of(attempts, 1.0); }
+
+    /** One line per histogram, prefixed with {@code tag}. */
+    String report(String tag) {
+        return tag + "latency ms (n=" + total.count() + ")\n"
+                + tag + "  queue   " + queue() + "\n"
+                + tag + "  attempt " + attempt() + " (n=" + attempt.count() + ")\n"
+                + tag + "  fetch   " + fetch() + "\n"
+                + tag + "  total   " + total() + "\n"
+                + tag + "  attempts/input " + attemptsPerInput();
+    }
+
+    String toJson(String label) {
+        return "{\"strategy\":\"" + label + "\",\"inputs\":" + total.count()
+                + ",\"queueMillis\":" + queue().toJson()
+                + ",\"attemptMillis\":" + attempt().toJson()
+                + ",\"fetchMillis\":" + fetch().toJson()
+                + ",\"totalMillis\":" + total().toJson()
+                + ",\"attemptsPerInput\":" + attemptsPerInput().toJson() + "}";
+    }
+
+    /** Appends this run as one JSON line to -Dio.report.json, if set, so CF and Loom runs line up in one file. */
+    void exportIfConfigured(String label) {
+        String file = System.getProperty("io.report.json");
+        if (file == null || file.isBlank()) return;
+        try {
+            Files.writeString(Path.of(file), toJson(label) + System.lineSeparator(),
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            System.err.println("[ParallelIO] could not write latency report to " + file + ": " + e);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.concurrency.parallelio;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Recent successful-attempt latencies per input class, used to pick hedge delays.
+ * Each class keeps a small ring of the last {@value #WINDOW} samples. The quantile is cached and
+ * re-sorted only after {@value #REFRESH_EVERY} new samples, so a hedge lookup is usually one volatile read.
+ */
+final class LatencyTracker {
+    static final int WINDOW = 128;
+    static final int REFRESH_EVERY = 16;
+
+    /** Shared by all fetchers: the same backend looks the same to CF and Loom. */
+    static final LatencyTracker SHARED = new LatencyTracker();
+
+    private final ConcurrentHashMap<String, Ring> rings = new ConcurrentHashMap<>();
+
+    /**
+     * Input class for an id: the host for URLs, otherwise the leading lowercase letters
+     * ("simA" -> "sim", "flakyCF" -> "flaky").
+     */
+    static String classOf(String id) {
+        if (id == null) return "";
+        if (id.startsWith("http://") || id.startsWith("https://")) {
+            try {
+                String host = URI.create(id).getHost();
+                return host != null ? host : id;
+            } catch (IllegalArgumentException e) {
+                return id;
+            }
+        }
+        int i = 0;
+        while (i < id.length() && Character.isLowerCase(id.charAt(i))) i++;
+        return i > 0 ? id.substring(0, i) : id;
+    }
+
+    void record(String cls, long nanos) {
+        rings.computeIfAbsent(cls, k -> new Ring()).add(nanos);
+    }
+
+    /** Quantile of recent samples in nanos, or -1 when fewer than {@code minSamples} were seen. */
+    long quantileNanos(String cls, double q, int minSamples) {
+        Ring r = rings.get(cls);
+        return r == null ? -1 : r.quantile(q, minSamples);
+    }
+
+    void clear() {
+        rings.clear();
+    }
+
+    private static final class Ring {
+        /** Last computed quantile: for {@code q}, over {@code size} samples, when {@code added} was {@code at}. */
+        private record Cached(double q, int size, long at, long value) {}
+
+        private final long[] samples = new long[WINDOW];
+        private int next;
+        private int size;
+        private volatile long added;
+        private volatile Cached cached;
+
+        synchronized void add(long v) {
+            samples[next] = v;
+            next = (next + 1) % WINDOW;
+            if (size < WINDOW) size++;
+            added++;
+        }
+
+        long quantile(double q, int minSamples) {
+            Cached c = cached;
+            if (c != null && c.q() == q && c.size() >= minSamples && added - c.at() < REFRESH_EVERY) return c.value();
+            return recompute(q, minSamples);
+        }
+
+        private synchronized long recompute(double q, int minSamples) {
+            if (size == 0 || size < minSamples) return -1;
+            long[] copy = Arrays.copyOf(samples, size);
+            Arrays.sort(copy);
+            int idx = (int) Math.ceil(q * size) - 1;
+            long value = copy[Math.max(0, Math.min(size - 1, idx))];
+            cached = new Cached(q, size, added, value);
+            return value;
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.example.concurrency.parallelio;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Synthetic fan-out load for the fetch engine: 100k-1M+ simulated inputs, generated lazily.
+ * latency drawn from a seeded distribution (-Dio.load.dist=uniform|lognormal|bimodal)
+ * a share of inputs (-Dio.load.failure.rate) fail their first -Dio.load.failures attempts
+ * each input is encoded as {@code load-<n>@<millis>[x<failures>]} and read back by {@link SimulatedBackend}
+ * {@link #measure} streams the load through one strategy and reports throughput, peak concurrency,
+ * peak threads and heap per in-flight input
+ */
+public final class LoadGenerator implements Iterable<String> {
+
+    private static final String PREFIX = "load-";
+
+    /** Latency shapes. */
+    public enum Distribution {
+        /** Uniform in [min, max]. */
+        UNIFORM,
+        /** Lognormal around a median with shape sigma (long right tail). */
+        LOGNORMAL,
+        /** Mostly fast around the median, with an outlier share at the slow latency. */
+        BIMODAL;
+
+        /** Parses -Dio.load.dist; an unknown value is an error rather than a silent {@link #UNIFORM}. */
+        static Distribution parse(String s) {
+            return switch (s.trim().toLowerCase(Locale.ROOT)) {
+                case "uniform" -> UNIFORM;
+                case "lognormal", "lognorm" -> LOGNORMAL;
+                case "bimodal", "outliers" -> BIMODAL;
+                default -> throw new IllegalArgumentException("unknown io.load.dist '" + s
+                        + "'; expected one of uniform, lognormal, bimodal");
+            };
+        }
+    }
+
+    /** Generator settings; see {@link #fromSystemProperties()} for the property names and defaults. */
+    public record Config(long count, long seed, Distribution dist, long minMillis, long maxMillis,
+                         long medianMillis, double sigma, long slowMillis, double outlierRate,
+                         double failureRate, int failures) {
+
+        public static Config fromSystemProperties() {
+            return new Config(
+                    Long.getLong("io.load.count", 100_000L),
+                    Long.getLong("io.load.seed", 42L),
+                    Distribution.parse(System.getProperty("io.load.dist", "uniform")),
+                    Long.getLong("io.load.min.millis", 10L),
+                    Long.getLong("io.load.max.millis", 100L),
+                    Long.getLong("io.load.median.millis", 50L),
+                    Double.parseDouble(System.getProperty("io.load.sigma", "0.5")),
+                    Long.getLong("io.load.slow.millis", 1_000L),
+                    Double.parseDouble(System.getProperty("io.load.outlier.rate", "0.01")),
+                    Double.parseDouble(System.getProperty("io.load.failure.rate", "0.0")),
+                    Integer.getInteger("io.load.failures", 1));
+        }
+    }
+
+    /** What one strategy did with the load. */
+    public record Report(String strategy, long inputs, long failures, long elapsedMillis, double throughputPerSec,
+                         int peakConcurrency, int peakThreads, long peakHeapDeltaBytes, long bytesPerInFlight) {
+        @Override public String toString() {
+            return String.format(Locale.ROOT,
+                    "%-6s inputs=%d failures=%d elapsed=%dms throughput=%.0f/s peak=%d threads=%d heap+=%dKiB perInFlight=%dB",
+                    strategy, inputs, failures, elapsedMillis, throughputPerSec, peakConcurrency, peakThreads,
+                    peakHeapDeltaBytes / 1024, bytesPerInFlight);
+        }
+    }
+
+    private final Config cfg;
+
+    public LoadGenerator(Config cfg) {
+        this.cfg = cfg;
+    }
+
+    /** Same seed, same sequence: every call starts a fresh generator, nothing is held between inputs. */
+    @Override public Iterator<String> iterator() {
+        SplittableRandom rnd = new SplittableRandom(cfg.seed());
+        return new Iterator<>() {
+            long next;
+
+            @Override public boolean hasNext() {
+                return next < cfg.count();
+            }
+
+            @Override public String next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                long ms = Math.max(0, latency(rnd));
+                String id = PREFIX + (next++) + '@' + ms;
+                return rnd.nextDouble() < cfg.failureRate() ? id + 'x' + cfg.failures() : id;
+            }
+        };
+    }
+
+    private long latency(SplittableRandom rnd) {
+        return switch (cfg.dist()) {
+            case UNIFORM -> cfg.minMillis() >= cfg.maxMillis() ? cfg.minMillis() : rnd.nextLong(cfg.minMillis(), cfg.maxMillis() + 1);
+            case LOGNORMAL -> Math.round(cfg.medianMillis() * Math.exp(cfg.sigma() * rnd.nextGaussian()));
+            case BIMODAL -> rnd.nextDouble() < cfg.outlierRate()
+                    ? Math.round(cfg.slowMillis() * (0.9 + 0.2 * rnd.nextDouble()))
+                    : Math.round(cfg.medianMillis() * (0.8 + 0.4 * rnd.nextDouble()));
+        };
+    }
+
+    // ---- decoding, used by SimulatedBackend ----
+
+    static boolean isGenerated(String id) {
+        return id.startsWith(PREFIX) && id.indexOf('@') > 0;
+    }
+
+    /** Encoded latency of a generated id, or -1 for other ids. */
+    static long latencyOf(String id) {
+        if (!isGenerated(id)) return -1;
+        int at = id.indexOf('@'), x = id.indexOf('x', at);
+        try {
+            return Long.parseLong(id, at + 1, x < 0 ? id.length() : x, 10);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /** Encoded failures-before-success of a generated id, or 0. */
+    static int failuresOf(String id) {
+        int x = isGenerated(id) ? id.indexOf('x', id.indexOf('@')) : -1;
+        if (x < 0) return 0;
+        try {
+            return Integer.parseInt(id, x + 1, id.length(), 10);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    // ---- measurement ----
+
+    /**
+     * Streams the whole load through {@code strategy} (window -Dio.stream.window) while sampling heap
+     * and thread counts. Heap per in-flight input = peak heap growth over the baseline / peak concurrency;
+     * an estimate, since garbage from finished inputs counts too.
+     */
+    public Report measure(FetchEngine.Strategy strategy) throws InterruptedException {
+        MemoryMXBean mem = ManagementFactory.getMemoryMXBean();
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        System.gc();
+        long baseline = mem.getHeapMemoryUsage().getUsed();
+        threads.resetPeakThreadCount();
+        AtomicLong peakHeap = new AtomicLong(baseline);
+        Thread sampler = Thread.ofPlatform().daemon().name("load-heap-sampler").start(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                peakHeap.accumulateAndGet(mem.getHeapMemoryUsage().getUsed(), Math::max);
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        });
+
+        long start = System.nanoTime();
+        RunningSummary summary;
+        try {
+            summary = FetchEngine.stream(strategy, this, r -> { });
+        } finally {
+            sampler.interrupt();
+            sampler.join();
+        }
+        long elapsedNanos = System.nanoTime() - start;
+
+        int peak = FetchEngine.lastPeakConcurrency();
+        long heapDelta = Math.max(0, peakHeap.get() - baseline);
+        return new Report(strategy.label(), summary.total(), summary.failure(), elapsedNanos / 1_000_000,
+                summary.total() * 1e9 / Math.max(1, elapsedNanos), peak, threads.getPeakThreadCount(),
+                heapDelta, peak > 0 ? heapDelta / peak : 0);
+    }
+
+    /** Strategies from -Dio.load.strategies (default cf,loom,async; scope needs --enable-preview). */
+    static List<FetchEngine.Strategy> configuredStrategies() {
+        List<FetchEngine.Strategy> out = new ArrayList<>();
+        for (String s : System.getProperty("io.load.strategies", "cf,loom,async").split(",")) {
+            if (!s.isBlank()) out.add(FetchEngine.Strategy.parse(s));
+        }
+        return out;
+    }
+
+    /** Runs the configured load through each configured strategy and prints one report line each. */
+    public static void main(String[] args) throws Exception {
+        Config cfg = Config.fromSystemProperties();
+        LoadGenerator load = new LoadGenerator(cfg);
+        List<Report> reports = new ArrayList<>();
+        for (FetchEngine.Strategy s : configuredStrategies()) reports.add(load.measure(s));
+        System.out.println("[ParallelIO/Load] " + cfg);
+        for (Report r : reports) System.out.println("[ParallelIO/Load] " + r);
+    }
+}
@@ -1,173 +1,100 @@
 package com.example.concurrency.parallelio;
 
-import java.net.http.HttpClient;
-import java.time.Duration;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Comparator;
 import java.util.List;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Semaphore;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * CompletableFuture-based parallel fetch demo.
  * sorted results + summary
- * optional concurrency cap via -Dio.cf.cap
- * simulated retries/backoff (treat sim* and flaky* as simulated)
+ * optional concurrency cap via -Dio.cap (or -Dio.cf.cap)
+ * simulated retries/backoff (treat sim* and flaky* as simulated; other non-URL inputs fail with 400)
+ * streaming completion-order results via {@link #stream}
+ * constant-memory counts, percentiles and top-K slowest via {@link #aggregate}
+ * runs on {@link FetchEngine} with the fixed-pool strategy
+ * executor per run, shared across runs, or fork/join with managed blocking (-Dio.cf.executor)
  */
 public class ParallelFetchCf {
 
-    /** Result of one fetch. */
-    public record Result(String id, long millis, boolean simulated, int status) {
-        /** Success: simulated OK (status==0) or real HTTP 2xx. */
-        public boolean success() {
-            return simulated ? status == 0 : (status >= 200 && status < 300);
-        }
-        @Override public String toString() {
-            return id + " -> " + millis + "ms, success=" + success();
+    /**
+     * Result type of the fetcher before it moved onto {@link FetchEngine}. The move was source-incompatible:
+     * {@link ParallelFetchCf#run} and {@link ParallelFetchCf#stream} now hand out {@link FetchResult}, so a caller that
+     * kept them as {@code List<Result>} no longer compiles and has to map each element with {@link #of}.
+     * @deprecated use {@link FetchResult}, which has the same components plus queue time and attempts
+     */
+    @Deprecated(forRemoval = true)
+    public record Result(String id, long millis, boolean simulated, int status, long bytes) {
+        public Result(String id, long millis, boolean simulated, int status) {
+            this(id, millis, simulated, status, 0L);
         }
-    }
 
-    // ---- visibility for tests ----
-    private static volatile int lastPeakConcurrency = 0;
-    public static int lastPeakConcurrency() { return lastPeakConcurrency; }
+        public static Result of(FetchResult r) {
+            return new Result(r.id(), r.millis(), r.simulated(), r.status(), r.bytes());
+        }
 
-    // ---------- helpers (retries/backoff) ----------
-    private static boolean isSimulated(String id) {
-        // Treat both "sim*" and "flaky*" as simulated inputs.
-        return id != null && (id.startsWith("sim") || id.startsWith("flaky"));
-    }
-    private static int failuresBeforeSuccessFor(String id) {
-        // Per-id override: -Dio.sim.flaky.failures.<id>=N
-        String perId = System.getProperty("io.sim.flaky.failures." + id);
-        if (perId != null) {
-            try { return Integer.parseInt(perId.trim()); } catch (NumberFormatException ignore) {}
+        public FetchResult toFetchResult() {
+            return new FetchResult(id, millis, simulated, status, bytes);
         }
-        // Global fallback used when id looks "flaky*"
-        int global = Integer.getInteger("io.sim.flaky.failures", 0);
-        if (id != null && id.startsWith("flaky")) return global;
-        return 0;
-    }
-    private static long retryBackoffMillis() {
-        return Long.getLong("io.retry.backoff.millis", 50L);
-    }
 
-    /** Simulated fetch (single attempt). */
-    private static Result simulateFetch(String id) {
-        int baseMs = Math.abs(id.hashCode() % 150) + 50; // 50..199 ms (deterministic)
-        long start = System.nanoTime();
-        try { Thread.sleep(baseMs); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
-        long durMs = Duration.ofNanos(System.nanoTime() - start).toMillis();
-        return new Result(id, durMs, true, 0);
-    }
+        /** Success: simulated OK (status==0) or real HTTP 2xx. */
+        public boolean success() {
+            return toFetchResult().success();
+        }
 
-    /** Simulated fetch with retry/backoff: fail N times then succeed; duration includes backoffs. */
-    private static Result simulateFetchWithRetry(String id) {
-        int toFail = failuresBeforeSuccessFor(id);
-        long start = System.nanoTime();
-        int failed = 0;
-        while (true) {
-            int baseMs = Math.abs(id.hashCode() % 150) + 50;
-            try { Thread.sleep(baseMs); }
-            catch (InterruptedException ie) { Thread.currentThread().interrupt(); return new Result(id, 0, true, 1); }
-            if (failed < toFail) {
-                failed++;
-                try { Thread.sleep(retryBackoffMillis()); } catch (InterruptedException ie) { Thread.currentThread().interrupt(); }
-                continue;
-            }
-            long durMs = Duration.ofNanos(System.nanoTime() - start).toMillis();
-            return new Result(id, durMs, true, 0);
+        /** Worth retrying: simulated failures, and real 5xx/408/429 or transport errors (not other 4xx). */
+        public boolean retryable() {
+            return toFetchResult().retryable();
         }
-    }
 
-    /** "Real" fetch placeholder; kept offline-safe. */
-    private static Result realFetch(HttpClient http, String url) {
-        long start = System.nanoTime();
-        try {
-            Thread.sleep(100);
-            long durMs = Duration.ofNanos(System.nanoTime() - start).toMillis();
-            return new Result(url, durMs, false, 200);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            long durMs = Duration.ofNanos(System.nanoTime() - start).toMillis();
-            return new Result(url, durMs, false, 500);
+        @Override public String toString() {
+            return id + " -> " + millis + "ms, success=" + success();
         }
     }
 
+    // ---- visibility for tests ----
+    public static int lastPeakConcurrency() { return FetchEngine.lastPeakConcurrency(); }
+    /** Attempts/retries/hedges of the most recent run. */
+    public static AttemptStats lastAttemptStats() { return FetchEngine.lastAttemptStats(); }
+    /** Cache hits/misses/coalesced/evictions of the most recent run. */
+    public static CacheStats lastCacheStats() { return FetchEngine.lastCacheStats(); }
+    /** Breaker short circuits and transitions of the most recent run. */
+    public static BreakerStats lastBreakerStats() { return FetchEngine.lastBreakerStats(); }
+    /** Queue/attempt/fetch/total latency histograms of the most recent run. */
+    public static LatencyBreakdown lastLatency() { return FetchEngine.lastLatency(); }
+    /** Peak in-flight per destination of the most recent run. */
+    public static Map<String, Integer> lastHostPeaks() { return FetchEngine.lastHostPeaks(); }
+
     /**
      * Runs the demo, gathers results, sorts by latency (non-decreasing),
      * prints a summary, records peak concurrency, and returns results.
      */
-    public static List<Result> run(String... args) throws Exception {
-        List<String> inputs = (args != null && args.length > 0)
-                ? Arrays.asList(args)
-                : List.of("simA", "simB", "simC");
-
-        int pool = Integer.getInteger("io.pool", 8);
-        ExecutorService exec = Executors.newFixedThreadPool(pool);
-        try {
-            // IO-02: optional cap via -Dio.cf.cap
-            Integer capProp = Integer.getInteger("io.cf.cap", null);
-            final Semaphore gate = (capProp != null) ? new Semaphore(Math.max(1, capProp)) : null;
-
-            // Track in-flight & peak regardless of cap
-            final AtomicInteger inFlight = new AtomicInteger();
-            final AtomicInteger peak = new AtomicInteger();
-
-            HttpClient http = HttpClient.newBuilder()
-                    .connectTimeout(Duration.ofSeconds(5))
-                    .executor(exec)
-                    .build();
-
-            List<CompletableFuture<Result>> futures = new ArrayList<>();
-            for (String in : inputs) {
-                futures.add(CompletableFuture.supplyAsync(() -> {
-                    try {
-                        if (gate != null) gate.acquire();
-                        int now = inFlight.incrementAndGet();
-                        peak.accumulateAndGet(now, Math::max);
-
-                        if (isSimulated(in)) {
-                            int planned = failuresBeforeSuccessFor(in);
-                            return (planned > 0) ? simulateFetchWithRetry(in) : simulateFetch(in);
-                        }
-                        return realFetch(http, in);
-                    } catch (InterruptedException ie) {
-                        Thread.currentThread().interrupt();
-                        return new Result("interrupted", -1, true, 1);
-                    } finally {
-                        inFlight.decrementAndGet();
-                        if (gate != null) gate.release();
-                    }
-                }, exec));
-            }
-
-            List<Result> results = new ArrayList<>();
-            for (CompletableFuture<Result> f : futures) {
-                results.add(f.get());
-            }
+    public static List<FetchResult> run(String... args) throws Exception {
+        return FetchEngine.run(FetchEngine.Strategy.FIXED_POOL_CF,
+                FetchEngine.inputsOrDefault(args, List.of("simA", "simB", "simC")));
+    }
 
-            results.sort(Comparator.comparingLong(Result::millis));
-            printSummary(results);
-            lastPeakConcurrency = peak.get(); // <- exposes to tests
-            return results;
-        } finally {
-            exec.shutdownNow();
-        }
+    /**
+     * Streams results to {@code onResult} as each input completes (completion order) instead of
+     * collecting them. Inputs are pulled lazily; at most -Dio.stream.window (default 4 x io.pool)
+     * are in flight or queued at once, so memory stays bounded for very large fan-outs.
+     * The callback may be invoked concurrently from pool threads.
+     */
+    public static RunningSummary stream(Iterable<String> inputs, Consumer<? super FetchResult> onResult)
+            throws InterruptedException {
+        return FetchEngine.stream(FetchEngine.Strategy.FIXED_POOL_CF, inputs, onResult);
     }
 
-    /** Prints success/failure/total summary. */
-    private static void printSummary(List<Result> results) {
-        int ok = 0, fail = 0;
-        for (Result r : results) if (r.success()) ok++; else fail++;
-        System.out.println("[ParallelIO/CF] summary: success=" + ok + " failure=" + fail + " total=" + results.size());
+    /**
+     * Folds results into counts, a latency histogram and the {@code topK} slowest instead of keeping
+     * them, with the same lazy, windowed intake as {@link #stream}: memory is constant in the
+     * number of inputs.
+     */
+    public static ResultAggregate aggregate(Iterable<String> inputs, int topK) throws InterruptedException {
+        return FetchEngine.aggregate(FetchEngine.Strategy.FIXED_POOL_CF, inputs, topK);
     }
 
     public static void main(String[] args) throws Exception {
-        List<Result> r = run(args);
-        for (Result res : r) System.out.println(res);
+        List<FetchResult> r = run(args);
+        for (FetchResult res : r) System.out.println(res);
     }
 }
@@ -1,124 +1,92 @@
 package com.example.concurrency.parallelio;
 
-import java.net.http.HttpClient;
-import java.time.Duration;
-import java.time.Instant;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Comparator;
 import java.util.List;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
+import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * Virtual-threads (Loom) parallel fetch demo.
  * sorted results + summary; simulated retries.
+ * streaming completion-order results via {@link #stream}
+ * constant-memory counts, percentiles and top-K slowest via {@link #aggregate}
+ * runs on {@link FetchEngine} with the virtual-thread strategy (same cap, retries and peak tracking as CF)
  */
 public class ParallelFetchLoom {
 
-    public record Result(String id, long millis, boolean simulated, int status) {
-        public boolean success() {
-            return simulated ? status == 0 : (status >= 200 && status < 300);
+    /**
+     * Result type of the fetcher before it moved onto {@link FetchEngine}. The move was source-incompatible:
+     * {@link ParallelFetchLoom#run} and {@link ParallelFetchLoom#stream} now hand out {@link FetchResult}, so a caller that
+     * kept them as {@code List<Result>} no longer compiles and has to map each element with {@link #of}.
+     * @deprecated use {@link FetchResult}, which has the same components plus queue time and attempts
+     */
+    @Deprecated(forRemoval = true)
+    public record Result(String id, long millis, boolean simulated, int status, long bytes) {
+        public Result(String id, long millis, boolean simulated, int status) {
+            this(id, millis, simulated, status, 0L);
         }
-        @Override public String toString() {
-            return id + " -> " + millis + "ms, success=" + success();
+
+        public static Result of(FetchResult r) {
+            return new Result(r.id(), r.millis(), r.simulated(), r.status(), r.bytes());
         }
-    }
 
-    // ---------- helpers ----------
-    private static boolean isSimulated(String id) {
-        return id != null && (id.startsWith("sim") || id.startsWith("flaky"));
-    }
-    private static int failuresBeforeSuccessFor(String id) {
-        String perId = System.getProperty("io.sim.flaky.failures." + id);
-        if (perId != null) {
-            try { return Integer.parseInt(perId.trim()); } catch (NumberFormatException ignore) {}
+        public FetchResult toFetchResult() {
+            return new FetchResult(id, millis, simulated, status, bytes);
         }
-        int global = Integer.getInteger("io.sim.flaky.failures", 0);
-        if (id != null && id.startsWith("flaky")) return global;
-        return 0;
-    }
-    private static long retryBackoffMillis() {
-        return Long.getLong("io.retry.backoff.millis", 50L);
-    }
 
-    private static Result simulateFetch(String id) {
-        int baseMs = Math.abs(id.hashCode() % 150) + 50;
-        long start = System.nanoTime();
-        try { Thread.sleep(baseMs); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
-        long durMs = Duration.ofNanos(System.nanoTime() - start).toMillis();
-        return new Result(id, durMs, true, 0);
-    }
+        /** Success: simulated OK (status==0) or real HTTP 2xx. */
+        public boolean success() {
+            return toFetchResult().success();
+        }
 
-    private static Result simulateFetchWithRetry(String id) {
-        int toFail = failuresBeforeSuccessFor(id);
-        long start = System.nanoTime();
-        int failed = 0;
-        while (true) {
-            int baseMs = Math.abs(id.hashCode() % 150) + 50;
-            try { Thread.sleep(baseMs); } catch (InterruptedException ie) { Thread.currentThread().interrupt(); return new Result(id, 0, true, 1); }
-            if (failed < toFail) {
-                failed++;
-                try { Thread.sleep(retryBackoffMillis()); } catch (InterruptedException ie) { Thread.currentThread().interrupt(); }
-                continue;
-            }
-            long durMs = Duration.ofNanos(System.nanoTime() - start).toMillis();
-            return new Result(id, durMs, true, 0);
+        /** Worth retrying: simulated failures, and real 5xx/408/429 or transport errors (not other 4xx). */
+        public boolean retryable() {
+            return toFetchResult().retryable();
         }
-    }
 
-    private static Result realFetch(HttpClient http, String url) {
-        long start = System.nanoTime();
-        try {
-            Thread.sleep(100);
-            long durMs = Duration.ofNanos(System.nanoTime() - start).toMillis();
-            return new Result(url, durMs, false, 200);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            long durMs = Duration.ofNanos(System.nanoTime() - start).toMillis();
-            return new Result(url, durMs, false, 500);
+        @Override public String toString() {
+            return id + " -> " + millis + "ms, success=" + success();
         }
     }
 
-    public static List<Result> run(String... args) throws Exception {
-        List<String> inputs = (args != null && args.length > 0)
-                ? Arrays.asList(args)
-                : List.of("simX", "simY", "simZ", "simW");
+    /** Peak in-flight inputs of the most recent run. */
+    public static int lastPeakConcurrency() { return FetchEngine.lastPeakConcurrency(); }
+    /** Attempts/retries/hedges of the most recent run. */
+    public static AttemptStats lastAttemptStats() { return FetchEngine.lastAttemptStats(); }
+    /** Cache hits/misses/coalesced/evictions of the most recent run. */
+    public static CacheStats lastCacheStats() { return FetchEngine.lastCacheStats(); }
+    /** Breaker short circuits and transitions of the most recent run. */
+    public static BreakerStats lastBreakerStats() { return FetchEngine.lastBreakerStats(); }
+    /** Queue/attempt/fetch/total latency histograms of the most recent run. */
+    public static LatencyBreakdown lastLatency() { return FetchEngine.lastLatency(); }
+    /** Peak in-flight per destination of the most recent run. */
+    public static Map<String, Integer> lastHostPeaks() { return FetchEngine.lastHostPeaks(); }
 
-        try (var exec = Executors.newVirtualThreadPerTaskExecutor()) {
-            HttpClient http = HttpClient.newBuilder()
-                    .connectTimeout(Duration.ofSeconds(5))
-                    .executor(exec)
-                    .build();
-
-            List<Future<Result>> futures = new ArrayList<>();
-            for (String in : inputs) {
-                futures.add(exec.submit(() -> {
-                    if (isSimulated(in)) {
-                        int planned = failuresBeforeSuccessFor(in);
-                        return (planned > 0) ? simulateFetchWithRetry(in) : simulateFetch(in);
-                    }
-                    return realFetch(http, in);
-                }));
-            }
-
-            List<Result> results = new ArrayList<>();
-            for (Future<Result> f : futures) results.add(f.get());
+    public static List<FetchResult> run(String... args) throws Exception {
+        return FetchEngine.run(FetchEngine.Strategy.VIRTUAL_THREADS,
+                FetchEngine.inputsOrDefault(args, List.of("simX", "simY", "simZ", "simW")));
+    }
 
-            results.sort(Comparator.comparingLong(Result::millis));
-            printSummary(results);
-            return results;
-        }
+    /**
+     * Streams results to {@code onResult} as each input completes, one virtual thread per input.
+     * Inputs are pulled lazily and at most -Dio.stream.window (default 10000) run at once, so
+     * memory stays bounded for very large fan-outs. The callback runs on the virtual threads.
+     */
+    public static RunningSummary stream(Iterable<String> inputs, Consumer<? super FetchResult> onResult)
+            throws InterruptedException {
+        return FetchEngine.stream(FetchEngine.Strategy.VIRTUAL_THREADS, inputs, onResult);
     }
 
-    private static void printSummary(List<Result> results) {
-        int ok = 0, fail = 0;
-        for (Result r : results) if (r.success()) ok++; else fail++;
-        System.out.println("[ParallelIO/Loom] summary: success=" + ok + " failure=" + fail + " total=" + results.size());
+    /**
+     * Folds results into counts, a latency histogram and the {@code topK} slowest instead of keeping
+     * them, with the same lazy, windowed intake as {@link #stream}: memory is constant in the
+     * number of inputs.
+     */
+    public static ResultAggregate aggregate(Iterable<String> inputs, int topK) throws InterruptedException {
+        return FetchEngine.aggregate(FetchEngine.Strategy.VIRTUAL_THREADS, inputs, topK);
     }
 
     public static void main(String[] args) throws Exception {
-        List<Result> r = run(args);
-        for (Result res : r) System.out.println(res);
+        List<FetchResult> r = run(args);
+        for (FetchResult res : r) System.out.println(res);
     }
 }
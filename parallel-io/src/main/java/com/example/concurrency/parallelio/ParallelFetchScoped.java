@@ -0,0 +1,170 @@
+package com.example.concurrency.parallelio;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.StructuredTaskScope;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Structured-concurrency variant of {@link ParallelFetchLoom} (JDK 21 preview, needs --enable-preview).
+ * same per-input work as {@link FetchEngine} (cache and coalescing, breakers, cap, retries, hedging), plus batch policies
+ * one scope per batch; results in completion order
+ * per-batch deadline via -Dio.scope.deadline.millis (0 = none)
+ * policy via -Dio.scope.policy=all|failfast|firstsuccess
+ * on deadline or shutdown, unfinished siblings are cancelled and finished ones are returned
+ * stats and the summary go through {@link FetchEngine} like every other strategy (-Dio.quiet silences it)
+ * runs under the same JFR ring buffer, run event and p99 trigger as {@link FetchEngine} (see {@link FetchEngine.RunObserver})
+ */
+public class ParallelFetchScoped {
+
+    /** What makes the scope shut down early. */
+    public enum Policy {
+        /** Wait for every input (or the deadline). */
+        ALL,
+        /** Shut down on the first failed input (like {@code ShutdownOnFailure}). */
+        SHUTDOWN_ON_FAILURE,
+        /** Shut down on the first successful input (like {@code ShutdownOnSuccess}). */
+        SHUTDOWN_ON_SUCCESS;
+
+        /** Parses -Dio.scope.policy; an unknown value is an error rather than a silent {@link #ALL}. */
+        static Policy parse(String s) {
+            return switch (s.trim().toLowerCase(Locale.ROOT)) {
+                case "all" -> ALL;
+                case "failfast", "shutdownonfailure", "shutdown_on_failure" -> SHUTDOWN_ON_FAILURE;
+                case "firstsuccess", "shutdownonsuccess", "shutdown_on_success" -> SHUTDOWN_ON_SUCCESS;
+                default -> throw new IllegalArgumentException("unknown io.scope.policy '" + s
+                        + "'; expected one of all, failfast (shutdown_on_failure), firstsuccess (shutdown_on_success)");
+            };
+        }
+    }
+
+    /** Batch outcome: finished results (completion order) plus what was cut short. */
+    public record Outcome(List<FetchResult> results, int forked, int cancelled, boolean timedOut, long elapsedMillis) {
+        /** True when every forked input finished inside the deadline. */
+        public boolean complete() {
+            return cancelled == 0 && !timedOut;
+        }
+    }
+
+    /** Collects results as subtasks complete and applies the shutdown policy. */
+    static final class FetchScope extends StructuredTaskScope<FetchResult> {
+        private final Policy policy;
+        private final Consumer<FetchResult> onResult;
+        private final ConcurrentLinkedQueue<FetchResult> completed = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger crashed = new AtomicInteger();
+
+        FetchScope(Policy policy, Consumer<FetchResult> onResult) {
+            super("parallel-fetch-scope", Thread.ofVirtual().name("scope-fetch-", 0).factory());
+            this.policy = policy;
+            this.onResult = onResult;
+        }
+
+        @Override
+        protected void handleComplete(Subtask<? extends FetchResult> subtask) {
+            boolean ok;
+            if (subtask.state() == Subtask.State.SUCCESS) {
+                FetchResult r = subtask.get();
+                completed.add(r);
+                onResult.accept(r);
+                ok = r.success();
+            } else {
+                crashed.incrementAndGet();
+                ok = false;
+            }
+            if ((policy == Policy.SHUTDOWN_ON_FAILURE && !ok) || (policy == Policy.SHUTDOWN_ON_SUCCESS && ok)) {
+                shutdown();
+            }
+        }
+
+        List<FetchResult> completed() {
+            return new ArrayList<>(completed);
+        }
+
+        int crashed() {
+            return crashed.get();
+        }
+    }
+
+    private static Duration deadlineFromProps() {
+        long ms = Long.getLong("io.scope.deadline.millis", 0L);
+        return ms > 0 ? Duration.ofMillis(ms) : null;
+    }
+
+    /** Runs with deadline/policy taken from system properties. */
+    public static Outcome run(String... args) throws InterruptedException {
+        return run(deadlineFromProps(), Policy.parse(System.getProperty("io.scope.policy", "all")), args);
+    }
+
+    /**
+     * Forks one virtual thread per input inside a single scope, joins until the deadline
+     * (null = no deadline), and returns whatever finished, in completion order.
+     */
+    public static Outcome run(Duration deadline, Policy policy, String... args) throws InterruptedException {
+        List<String> inputs = (args != null && args.length > 0)
+                ? Arrays.asList(args)
+                : List.of("simX", "simY", "simZ", "simW");
+
+        FetchCore core = new FetchCore();
+        long elapsed;
+        boolean timedOut = false;
+        List<FetchResult> results;
+        FetchScope scope;
+        try (FetchEngine.RunObserver run = new FetchEngine.RunObserver(FetchEngine.Strategy.STRUCTURED_SCOPE, core)) {
+            long start = System.nanoTime();
+            scope = new FetchScope(policy, run::finished);
+            try (scope) {
+                for (String in : inputs) {
+                    scope.fork(() -> fetch(core, in));
+                }
+                if (deadline == null) {
+                    scope.join();
+                } else {
+                    try {
+                        scope.joinUntil(Instant.now().plus(deadline));
+                    } catch (TimeoutException te) {
+                        timedOut = true;
+                        scope.shutdown(); // cancel the stragglers
+                    }
+                }
+            }
+
+            // After close() every fork has terminated, so the snapshot is final; publishing is not part of the batch.
+            elapsed = Duration.ofNanos(System.nanoTime() - start).toMillis();
+            results = scope.completed();
+            IoMetrics metrics = IoMetrics.of(FetchEngine.Strategy.STRUCTURED_SCOPE);
+            for (FetchResult r : results) metrics.record(r);
+            run.publish();
+        }
+        int cancelled = inputs.size() - results.size() - scope.crashed();
+        Outcome outcome = new Outcome(List.copyOf(results), inputs.size(), cancelled, timedOut, elapsed);
+        int ok = 0, fail = 0;
+        for (FetchResult r : results) if (r.success()) ok++; else fail++;
+        FetchEngine.printSummary(FetchEngine.Strategy.STRUCTURED_SCOPE, core, "summary: success=" + ok + " failure=" + fail
+                + " total=" + results.size() + " cancelled=" + cancelled + " timedOut=" + timedOut + " elapsed=" + elapsed + "ms");
+        core.latency().exportIfConfigured(FetchEngine.Strategy.STRUCTURED_SCOPE.label());
+        return outcome;
+    }
+
+    /**
+     * One input on its fork's thread, through {@link FetchCore#submit}: a cached or in-flight duplicate and an
+     * open circuit are answered without fetching; otherwise the fetch blocks right here, so cancelling the
+     * fork interrupts it.
+     */
+    private static FetchResult fetch(FetchCore core, String in) throws Exception {
+        long queuedAt = System.nanoTime();
+        return core.submit(in, () -> CompletableFuture.completedFuture(core.fetchBlocking(in, queuedAt))).get();
+    }
+
+    public static void main(String[] args) throws Exception {
+        Outcome o = run(args);
+        for (FetchResult res : o.results()) System.out.println(res);
+    }
+}
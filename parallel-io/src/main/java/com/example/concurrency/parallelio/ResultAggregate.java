@@ -0,0 +1,128 @@
+package com.example.concurrency.parallelio;
+
+import com.example.concurrency.metrics.LatencyHistogram;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread-safe, fixed-size fold of a run's results, for fan-outs too large to keep.
+ * counts, attempts and a latency histogram (p50/p90/p99/max) of every result
+ * the K slowest results in a bounded min-heap of parallel primitive arrays; nothing else is retained
+ * memory depends on K only, never on the number of inputs, and nothing is sorted until {@link #slowest}
+ */
+public final class ResultAggregate {
+
+    /** One retained slow result. */
+    public record Slow(String id, long millis, int status) {}
+
+    private final LongAdder success = new LongAdder();
+    private final LongAdder failure = new LongAdder();
+    private final LongAdder shortCircuited = new LongAdder();
+    private final LongAdder attempts = new LongAdder();
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    // min-heap on millis: slot 0 is the fastest of the K slowest
+    private final int k;
+    private final long[] heapMillis;
+    private final int[] heapStatus;
+    private final String[] heapIds;
+    private int size;
+    /** Fastest retained latency once the heap is full (-1 before), read without the lock to skip most offers. */
+    private volatile long floor = -1;
+
+    public ResultAggregate(int topK) {
+        this.k = Math.max(0, topK);
+        this.heapMillis = new long[k];
+        this.heapStatus = new int[k];
+        this.heapIds = new String[k];
+    }
+
+    /** Folds one completed input in; may be called concurrently. */
+    public void record(FetchResult r) {
+        if (r.success()) success.increment(); else failure.increment();
+        if (r.shortCircuited()) shortCircuited.increment();
+        attempts.add(r.attempts());
+        if (r.millis() < 0) return; // never completed an attempt: counted, but no latency
+        latency.recordValue(r.millis() * 1_000L);
+        long f = floor;
+        if (k > 0 && (f < 0 || r.millis() > f)) offer(r.id(), r.millis(), r.status());
+    }
+
+    private synchronized void offer(String id, long millis, int status) {
+        if (size < k) {
+            int i = size++;
+            heapMillis[i] = millis;
+            heapStatus[i] = status;
+            heapIds[i] = id;
+            siftUp(i);
+            if (size == k) floor = heapMillis[0];
+        } else if (millis > heapMillis[0]) {
+            heapMillis[0] = millis;
+            heapStatus[0] = status;
+            heapIds[0] = id;
+            siftDown(0);
+            floor = heapMillis[0];
+        }
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (heapMillis[parent] <= heapMillis[i]) return;
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int l = 2 * i + 1, r = l + 1, min = i;
+            if (l < size && heapMillis[l] < heapMillis[min]) min = l;
+            if (r < size && heapMillis[r] < heapMillis[min]) min = r;
+            if (min == i) return;
+            swap(i, min);
+            i = min;
+        }
+    }
+
+    private void swap(int a, int b) {
+        long m = heapMillis[a]; heapMillis[a] = heapMillis[b]; heapMillis[b] = m;
+        int s = heapStatus[a]; heapStatus[a] = heapStatus[b]; heapStatus[b] = s;
+        String id = heapIds[a]; heapIds[a] = heapIds[b]; heapIds[b] = id;
+    }
+
+    public long success() { return success.sum(); }
+    public long failure() { return failure.sum(); }
+    public long total() { return success.sum() + failure.sum(); }
+    /** Inputs rejected by an open circuit breaker (also counted as failures). */
+    public long shortCircuited() { return shortCircuited.sum(); }
+    /** Attempts across all inputs, retries and hedges included. */
+    public long attempts() { return attempts.sum(); }
+
+    /** Latency at quantile {@code q} in ms (histogram bucket edge, within ~6%); 0 when empty. */
+    public long percentileMillis(double q) {
+        return latency.quantile(q) / 1_000L;
+    }
+
+    /** Exact largest latency in ms; 0 when empty. */
+    public long maxMillis() {
+        return latency.max() / 1_000L;
+    }
+
+    /** The retained slowest results, slowest first (at most K). */
+    public synchronized List<Slow> slowest() {
+        List<Slow> out = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) out.add(new Slow(heapIds[i], heapMillis[i], heapStatus[i]));
+        out.sort(Comparator.comparingLong(Slow::millis).reversed());
+        return out;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("success=%d failure=%d total=%d attempts=%d p50=%dms p90=%dms p99=%dms max=%dms",
+                success(), failure(), total(), attempts(),
+                percentileMillis(0.50), percentileMillis(0.90), percentileMillis(0.99), maxMillis());
+    }
+}
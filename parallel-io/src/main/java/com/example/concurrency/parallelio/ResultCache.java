@@ -0,0 +1,158 @@
+package com.example.concurrency.parallelio;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight layer plus a bounded TTL cache in front of the execution strategies.
+ * <p>
+ * The cache is shared by all runs, so duplicates within one run and across overlapping runs are fetched
+ * once. Concurrent callers for an id join the one in-flight future; this coalescing is on by default and
+ * controlled by -Dio.coalesce. Successful results are kept for -Dio.cache.ttl.millis (0 disables caching)
+ * in an LRU of at most -Dio.cache.max.entries, and failures are never cached. Counters are kept per run
+ * ({@link Session}), not per cache.
+ */
+final class ResultCache {
+
+    record Config(boolean coalesce, long ttlMillis, int maxEntries) {
+        static Config fromSystemProperties() {
+            return new Config(Boolean.parseBoolean(System.getProperty("io.coalesce", "true")),
+                    Math.max(0L, Long.getLong("io.cache.ttl.millis", 0L)),
+                    Math.max(1, Integer.getInteger("io.cache.max.entries", 10_000)));
+        }
+
+        boolean caching() {
+            return ttlMillis > 0;
+        }
+    }
+
+    /** Shared by all fetchers: an id fetched by CF is a hit for Loom too. */
+    static final ResultCache SHARED = new ResultCache();
+
+    private record Entry(FetchResult result, long expiresAtNanos) {}
+
+    private final ConcurrentHashMap<String, CompletableFuture<FetchResult>> inFlight = new ConcurrentHashMap<>();
+    /** Access-ordered, so iteration starts at the least recently used entry. Guarded by itself. */
+    private final LinkedHashMap<String, Entry> lru = new LinkedHashMap<>(16, 0.75f, true);
+
+    Session session(Config cfg) {
+        return new Session(cfg);
+    }
+
+    int size() {
+        synchronized (lru) {
+            return lru.size();
+        }
+    }
+
+    void clear() {
+        synchronized (lru) {
+            lru.clear();
+        }
+    }
+
+    /** Cached result, or null when absent or expired (expired entries are dropped and counted). */
+    private FetchResult lookup(String id, LongAdder expirations) {
+        synchronized (lru) {
+            Entry e = lru.get(id);
+            if (e == null) return null;
+            if (System.nanoTime() - e.expiresAtNanos() < 0) return e.result();
+            lru.remove(id);
+            expirations.increment();
+            return null;
+        }
+    }
+
+    private void store(String id, FetchResult r, Config cfg, LongAdder evictions) {
+        long expires = System.nanoTime() + cfg.ttlMillis() * 1_000_000L;
+        synchronized (lru) {
+            lru.put(id, new Entry(r, expires));
+            Iterator<Map.Entry<String, Entry>> it = lru.entrySet().iterator();
+            while (lru.size() > cfg.maxEntries() && it.hasNext()) {
+                it.next();
+                it.remove();
+                evictions.increment();
+            }
+        }
+    }
+
+    /** One run's view of the cache: its config and its counters. */
+    final class Session {
+        private final Config cfg;
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final LongAdder coalesced = new LongAdder();
+        private final LongAdder expirations = new LongAdder();
+        private final LongAdder evictions = new LongAdder();
+
+        private Session(Config cfg) {
+            this.cfg = cfg;
+        }
+
+        CacheStats stats() {
+            return new CacheStats(hits.sum(), misses.sum(), coalesced.sum(), evictions.sum(), expirations.sum());
+        }
+
+        /**
+         * Cached result, else the in-flight future for {@code id}, else a new fetch via {@code fetch}
+         * (which then becomes the in-flight future others join). Hits report 0ms.
+         */
+        CompletableFuture<FetchResult> get(String id, Supplier<CompletableFuture<FetchResult>> fetch) {
+            if (cfg.caching()) {
+                FetchResult r = lookup(id, expirations);
+                if (r != null) {
+                    hits.increment();
+                    return CompletableFuture.completedFuture(r.withMillis(0));
+                }
+            }
+            if (!cfg.coalesce()) {
+                misses.increment();
+                return fetchAndStore(id, fetch);
+            }
+            CompletableFuture<FetchResult> mine = new CompletableFuture<>();
+            CompletableFuture<FetchResult> leader = inFlight.putIfAbsent(id, mine);
+            if (leader != null) {
+                coalesced.increment();
+                return leader;
+            }
+            // A previous leader may have stored its result between our lookup and putIfAbsent.
+            FetchResult late = cfg.caching() ? lookup(id, expirations) : null;
+            if (late != null) {
+                hits.increment();
+                inFlight.remove(id, mine);
+                mine.complete(late.withMillis(0));
+                return mine;
+            }
+            misses.increment();
+            CompletableFuture<FetchResult> f;
+            try {
+                f = fetchAndStore(id, fetch);
+            } catch (Throwable t) {
+                // the fetch never started (rejected submit, bad URI): don't leave followers on a dead future
+                inFlight.remove(id, mine);
+                mine.completeExceptionally(t);
+                return mine;
+            }
+            f.whenComplete((r, err) -> {
+                inFlight.remove(id, mine); // after the store, so no window where neither has it
+                if (err != null) mine.completeExceptionally(err);
+                else mine.complete(r);
+            });
+            return mine;
+        }
+
+        private CompletableFuture<FetchResult> fetchAndStore(String id, Supplier<CompletableFuture<FetchResult>> fetch) {
+            CompletableFuture<FetchResult> f = fetch.get();
+            if (!cfg.caching()) return f;
+            return f.thenApply(r -> {
+                if (r.success()) store(id, r, cfg, evictions);
+                return r;
+            });
+        }
+    }
+}
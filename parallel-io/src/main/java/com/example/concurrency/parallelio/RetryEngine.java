@@ -0,0 +1,338 @@
+package com.example.concurrency.parallelio;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Attempt policy shared by the fetchers: retries with exponential backoff + jitter,
+ * a retry budget, per-attempt timeouts and hedged attempts.
+ * One engine per run; its counters form the run's {@link AttemptStats}.
+ *
+ * Without a timeout or hedging, attempts run inline on the caller's thread.
+ * Otherwise each attempt runs on its own virtual thread so it can be abandoned and interrupted.
+ * {@link #executeAsync} applies the same policy to already-asynchronous attempts.
+ */
+final class RetryEngine<R> {
+
+    /** Tunables, normally read from system properties. */
+    record Config(long backoffBaseMillis, long backoffMaxMillis, int maxRetries,
+                  long attemptTimeoutMillis, boolean hedgeEnabled, double hedgeQuantile, int hedgeMinSamples,
+                  double budgetRatio, int budgetMinRetries) {
+
+        static Config fromSystemProperties() {
+            return new Config(
+                    Long.getLong("io.retry.backoff.millis", 50L),
+                    Long.getLong("io.retry.backoff.max.millis", 2_000L),
+                    Integer.getInteger("io.retry.max", Integer.MAX_VALUE),
+                    Long.getLong("io.attempt.timeout.millis", 0L),
+                    Boolean.getBoolean("io.hedge.enabled"),
+                    Double.parseDouble(System.getProperty("io.hedge.quantile", "0.95")),
+                    Integer.getInteger("io.hedge.min.samples", 20),
+                    Double.parseDouble(System.getProperty("io.retry.budget.ratio", "0.2")),
+                    Integer.getInteger("io.retry.budget.min", 10));
+        }
+    }
+
+    private final Config cfg;
+    private final Predicate<? super R> ok;
+    private final Predicate<? super R> retryable;
+    private final LatencyTracker latencies;
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder attempts = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder hedges = new LongAdder();
+    private final LongAdder hedgeWins = new LongAdder();
+    private final LongAdder wasted = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder budgetDenied = new LongAdder();
+    /** Retries plus hedges granted by {@link #tryBudget}; reserved with a CAS so racing callers never overshoot. */
+    private final AtomicLong budgetSpent = new AtomicLong();
+
+    RetryEngine(Config cfg, Predicate<? super R> ok, LatencyTracker latencies) {
+        this(cfg, ok, r -> true, latencies);
+    }
+
+    /** @param retryable failed results worth another attempt (e.g. not an HTTP 404) */
+    RetryEngine(Config cfg, Predicate<? super R> ok, Predicate<? super R> retryable, LatencyTracker latencies) {
+        this.cfg = cfg;
+        this.ok = ok;
+        this.retryable = retryable;
+        this.latencies = latencies;
+    }
+
+    static <R> RetryEngine<R> fromSystemProperties(Predicate<? super R> ok, Predicate<? super R> retryable) {
+        return new RetryEngine<>(Config.fromSystemProperties(), ok, retryable, LatencyTracker.SHARED);
+    }
+
+    AttemptStats stats() {
+        return new AttemptStats(requests.sum(), attempts.sum(), retries.sum(), hedges.sum(), hedgeWins.sum(),
+                wasted.sum(), timeouts.sum(), budgetDenied.sum());
+    }
+
+    /**
+     * Runs attempts until one succeeds, retries run out, or the budget refuses.
+     *
+     * @param cls      input class (for hedge delays), see {@link LatencyTracker#classOf}
+     * @param attempt  attempt body, given a 0-based attempt number; should not throw
+     * @param timedOut result to report when no attempt produced one (all timed out)
+     * @return the winning result, or the last failed one
+     */
+    R execute(String cls, IntFunction<R> attempt, Supplier<R> timedOut) throws InterruptedException {
+        requests.increment();
+        AtomicInteger attemptNo = new AtomicInteger();
+        boolean isolated = cfg.hedgeEnabled() || cfg.attemptTimeoutMillis() > 0;
+        for (int retry = 0; ; retry++) {
+            R r = isolated ? isolatedRound(cls, attempt, attemptNo) : inlineRound(cls, attempt, attemptNo);
+            if (r != null && (ok.test(r) || !retryable.test(r))) return r;
+            if (retry >= cfg.maxRetries()) return r != null ? r : timedOut.get();
+            if (Thread.interrupted()) throw new InterruptedException("fetch cancelled");
+            if (!tryBudget()) {
+                budgetDenied.increment();
+                return r != null ? r : timedOut.get();
+            }
+            retries.increment();
+            Thread.sleep(backoffMillis(retry));
+        }
+    }
+
+    /**
+     * Exponential backoff with "equal jitter": half of base*2^retry (capped) is fixed,
+     * the other half is random, so concurrent retriers spread out but never go below half.
+     */
+    long backoffMillis(int retry) {
+        long base = Math.max(0, cfg.backoffBaseMillis());
+        long exp = Math.min(base << Math.min(retry, 20), Math.max(base, cfg.backoffMaxMillis()));
+        long half = exp / 2;
+        return half + ThreadLocalRandom.current().nextLong(exp - half + 1);
+    }
+
+    /** Budget: at most budgetMinRetries + budgetRatio x requests extra attempts per run; a true return spends one. */
+    private boolean tryBudget() {
+        long allowed = cfg.budgetMinRetries() + (long) (cfg.budgetRatio() * requests.sum());
+        long spent;
+        do {
+            spent = budgetSpent.get();
+            if (spent >= allowed) return false;
+        } while (!budgetSpent.compareAndSet(spent, spent + 1));
+        return true;
+    }
+
+    /**
+     * Non-blocking counterpart of {@link #execute} for attempts that are already asynchronous
+     * (e.g. {@code HttpClient.sendAsync}). Backoff and hedge delays use a delayed executor, so no
+     * thread waits; timed-out and losing attempt futures are cancelled.
+     */
+    CompletableFuture<R> executeAsync(String cls, IntFunction<CompletableFuture<R>> attempt, Supplier<R> timedOut) {
+        requests.increment();
+        return retryAsync(cls, attempt, timedOut, new AtomicInteger(), 0);
+    }
+
+    private CompletableFuture<R> retryAsync(String cls, IntFunction<CompletableFuture<R>> attempt, Supplier<R> timedOut,
+                                            AtomicInteger attemptNo, int retry) {
+        return new AsyncRound(cls, attempt, attemptNo).start().thenCompose(r -> {
+            if (r != null && (ok.test(r) || !retryable.test(r))) return CompletableFuture.completedFuture(r);
+            R fallback = r != null ? r : timedOut.get();
+            if (retry >= cfg.maxRetries()) return CompletableFuture.completedFuture(fallback);
+            if (!tryBudget()) {
+                budgetDenied.increment();
+                return CompletableFuture.completedFuture(fallback);
+            }
+            retries.increment();
+            Executor later = AsyncTimers.after(backoffMillis(retry), TimeUnit.MILLISECONDS);
+            return CompletableFuture.runAsync(() -> {}, later)
+                    .thenCompose(x -> retryAsync(cls, attempt, timedOut, attemptNo, retry + 1));
+        });
+    }
+
+    /** Async round: primary plus maybe one hedge; completes with the first success or, when all fail, the last result. */
+    private final class AsyncRound {
+        private final String cls;
+        private final IntFunction<CompletableFuture<R>> attempt;
+        private final AtomicInteger attemptNo;
+        private final CompletableFuture<R> winner = new CompletableFuture<>();
+        private final List<CompletableFuture<R>> launched = new CopyOnWriteArrayList<>();
+        private final AtomicInteger pending = new AtomicInteger();
+        private final AtomicReference<R> last = new AtomicReference<>();
+
+        AsyncRound(String cls, IntFunction<CompletableFuture<R>> attempt, AtomicInteger attemptNo) {
+            this.cls = cls;
+            this.attempt = attempt;
+            this.attemptNo = attemptNo;
+        }
+
+        CompletableFuture<R> start() {
+            launch(false);
+            long hedgeDelay = cfg.hedgeEnabled() ? latencies.quantileNanos(cls, cfg.hedgeQuantile(), cfg.hedgeMinSamples()) : -1;
+            if (hedgeDelay >= 0 && !winner.isDone()) {
+                AsyncTimers.after(hedgeDelay, TimeUnit.NANOSECONDS).execute(() -> {
+                    if (winner.isDone()) return;
+                    if (tryBudget()) {
+                        hedges.increment();
+                        launch(true);
+                    } else {
+                        budgetDenied.increment();
+                    }
+                });
+            }
+            winner.whenComplete((r, err) -> launched.forEach(this::abandon));
+            return winner;
+        }
+
+        private void launch(boolean hedge) {
+            attempts.increment();
+            pending.incrementAndGet();
+            long t0 = System.nanoTime();
+            CompletableFuture<R> f = attempt.apply(attemptNo.getAndIncrement());
+            if (cfg.attemptTimeoutMillis() > 0) f = f.orTimeout(cfg.attemptTimeoutMillis(), TimeUnit.MILLISECONDS);
+            launched.add(f);
+            f.whenComplete((r, err) -> {
+                if (err != null && unwrap(err) instanceof TimeoutException) timeouts.increment();
+                if (r != null && ok.test(r)) {
+                    if (winner.complete(r)) {
+                        latencies.record(cls, System.nanoTime() - t0);
+                        if (hedge) hedgeWins.increment();
+                    }
+                } else if (r != null) {
+                    last.set(r);
+                }
+                if (pending.decrementAndGet() == 0) winner.complete(last.get());
+            });
+            if (winner.isDone()) abandon(f); // raced with the winner
+        }
+
+        private void abandon(CompletableFuture<R> f) {
+            if (!f.isDone() && f.cancel(true)) wasted.increment();
+        }
+    }
+
+    private static Throwable unwrap(Throwable t) {
+        return (t instanceof CompletionException && t.getCause() != null) ? t.getCause() : t;
+    }
+
+    private R inlineRound(String cls, IntFunction<R> attempt, AtomicInteger attemptNo) {
+        attempts.increment();
+        long t0 = System.nanoTime();
+        R r = attempt.apply(attemptNo.getAndIncrement());
+        if (r != null && ok.test(r)) latencies.record(cls, System.nanoTime() - t0);
+        return r;
+    }
+
+    /** One round: a primary attempt, maybe one hedge; first success wins, losers are interrupted. */
+    private R isolatedRound(String cls, IntFunction<R> attempt, AtomicInteger attemptNo) throws InterruptedException {
+        long timeoutNanos = cfg.attemptTimeoutMillis() > 0 ? TimeUnit.MILLISECONDS.toNanos(cfg.attemptTimeoutMillis()) : Long.MAX_VALUE;
+        long hedgeDelay = cfg.hedgeEnabled() ? latencies.quantileNanos(cls, cfg.hedgeQuantile(), cfg.hedgeMinSamples()) : -1;
+        BlockingQueue<Launched<R>> done = new LinkedBlockingQueue<>();
+        List<Launched<R>> active = new ArrayList<>(2);
+
+        Launched<R> primary = launch(attempt, attemptNo.getAndIncrement(), false, timeoutNanos, done);
+        active.add(primary);
+        boolean hedgePending = hedgeDelay >= 0;
+        R last = null;
+        try {
+            while (!active.isEmpty()) {
+                long now = System.nanoTime();
+                long wait = Long.MAX_VALUE;
+                for (Launched<R> a : active) if (a.timed) wait = Math.min(wait, a.deadline - now);
+                if (hedgePending) wait = Math.min(wait, primary.start + hedgeDelay - now);
+
+                Launched<R> f = done.poll(Math.max(0, wait), TimeUnit.NANOSECONDS);
+                if (f == null) {
+                    now = System.nanoTime();
+                    if (hedgePending && now - primary.start >= hedgeDelay) {
+                        hedgePending = false;
+                        if (tryBudget()) {
+                            hedges.increment();
+                            active.add(launch(attempt, attemptNo.getAndIncrement(), true, timeoutNanos, done));
+                        } else {
+                            budgetDenied.increment();
+                        }
+                    }
+                    for (var it = active.iterator(); it.hasNext(); ) {
+                        Launched<R> a = it.next();
+                        if (a.timed && now - a.deadline >= 0) {
+                            a.cancel(true);
+                            it.remove();
+                            timeouts.increment();
+                        }
+                    }
+                    continue;
+                }
+                if (!active.remove(f)) continue; // already given up on
+                hedgePending = false;            // a finished primary is never hedged
+                R r = f.resultOrNull();
+                if (r != null && ok.test(r)) {
+                    latencies.record(cls, f.finished - f.start);
+                    if (f.hedge) hedgeWins.increment();
+                    return r;
+                }
+                if (r != null) last = r;
+            }
+            return last;
+        } finally {
+            for (Launched<R> a : active) {
+                a.cancel(true);
+                wasted.increment();
+            }
+        }
+    }
+
+    private Launched<R> launch(IntFunction<R> attempt, int n, boolean hedge, long timeoutNanos,
+                               BlockingQueue<Launched<R>> done) {
+        attempts.increment();
+        Launched<R> l = new Launched<>(() -> attempt.apply(n), hedge, timeoutNanos, done);
+        Thread.ofVirtual().name("fetch-attempt-" + n).start(l);
+        return l;
+    }
+
+    /** An attempt running on its own virtual thread; reports itself to {@code done} when finished. */
+    private static final class Launched<R> extends FutureTask<R> {
+        final boolean hedge;
+        final long start = System.nanoTime();
+        final boolean timed;
+        final long deadline;
+        final BlockingQueue<Launched<R>> done;
+        volatile long finished;
+
+        Launched(Callable<R> body, boolean hedge, long timeoutNanos, BlockingQueue<Launched<R>> done) {
+            super(body);
+            this.hedge = hedge;
+            this.timed = timeoutNanos != Long.MAX_VALUE;
+            this.deadline = timed ? start + timeoutNanos : 0L;
+            this.done = done;
+        }
+
+        @Override protected void done() {
+            finished = System.nanoTime();
+            done.add(this);
+        }
+
+        R resultOrNull() {
+            try {
+                return get();
+            } catch (ExecutionException | InterruptedException | CancellationException e) {
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.concurrency.parallelio;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread-safe, fixed-size summary updated as streamed results complete.
+ * Memory does not grow with the number of inputs.
+ */
+public final class RunningSummary {
+    private final LongAdder success = new LongAdder();
+    private final LongAdder failure = new LongAdder();
+    private final LongAdder totalMillis = new LongAdder();
+    private final LongAccumulator minMillis = new LongAccumulator(Math::min, Long.MAX_VALUE);
+    private final LongAccumulator maxMillis = new LongAccumulator(Math::max, Long.MIN_VALUE);
+
+    /** Records one completed input. */
+    public void record(boolean ok, long millis) {
+        if (ok) success.increment(); else failure.increment();
+        if (millis >= 0) {
+            totalMillis.add(millis);
+            minMillis.accumulate(millis);
+            maxMillis.accumulate(millis);
+        }
+    }
+
+    public long success() { return success.sum(); }
+    public long failure() { return failure.sum(); }
+    public long total() { return success.sum() + failure.sum(); }
+
+    /** Smallest latency seen so far, or 0 when nothing was recorded. */
+    public long minMillis() {
+        long v = minMillis.get();
+        return v == Long.MAX_VALUE ? 0 : v;
+    }
+
+    /** Largest latency seen so far, or 0 when nothing was recorded. */
+    public long maxMillis() {
+        long v = maxMillis.get();
+        return v == Long.MIN_VALUE ? 0 : v;
+    }
+
+    public double meanMillis() {
+        long n = total();
+        return n == 0 ? 0.0 : (double) totalMillis.sum() / n;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("success=%d failure=%d total=%d min=%dms max=%dms mean=%.1fms",
+                success(), failure(), total(), minMillis(), maxMillis(), meanMillis());
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.concurrency.parallelio;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.StructuredTaskScope;
+
+/**
+ * Every input forked into one {@link StructuredTaskScope} owned by the run's thread
+ * (JDK 21 preview). Kept in its own class so only this strategy needs --enable-preview.
+ */
+final class ScopedStrategy implements ExecutionStrategy {
+    private final FetchCore core;
+    private final StructuredTaskScope<FetchResult> scope =
+            new StructuredTaskScope<>("fetch-engine-scope", Thread.ofVirtual().name("scope-fetch-", 0).factory());
+
+    ScopedStrategy(FetchCore core) {
+        this.core = core;
+    }
+
+    @Override public CompletableFuture<FetchResult> start(String input) {
+        CompletableFuture<FetchResult> f = new CompletableFuture<>();
+        long queuedAt = System.nanoTime();
+        scope.fork(() -> {
+            try {
+                FetchResult r = core.fetchBlocking(input, queuedAt);
+                f.complete(r);
+                return r;
+            } catch (RuntimeException e) {
+                f.complete(FetchResult.failed(input, HttpFetch.STATUS_IO_ERROR));
+                throw e;
+            }
+        });
+        return f;
+    }
+
+    @Override public void close() {
+        try {
+            scope.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            scope.close();
+        }
+    }
+}
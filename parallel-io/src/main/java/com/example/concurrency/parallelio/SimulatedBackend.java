@@ -0,0 +1,63 @@
+package com.example.concurrency.parallelio;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Network-free backend for "sim*" and "flaky*" inputs and generated load ids; anything else is fetched for real.
+ * latency is deterministic per id: 50..199 ms
+ * flaky ids fail their first N attempts (-Dio.sim.flaky.failures[.id]=N)
+ * generated load ids carry their own latency and failures (see {@link LoadGenerator})
+ */
+final class SimulatedBackend {
+    private SimulatedBackend() {}
+
+    /**
+     * Only the known simulated prefixes; a typo or another scheme goes to {@link HttpFetch} and fails
+     * there with {@link HttpFetch#STATUS_BAD_INPUT} instead of quietly succeeding.
+     */
+    static boolean isSimulated(String id) {
+        return id != null && (id.startsWith("sim") || id.startsWith("flaky") || LoadGenerator.isGenerated(id));
+    }
+
+    static int failuresBeforeSuccessFor(String id) {
+        if (id != null && LoadGenerator.isGenerated(id)) return LoadGenerator.failuresOf(id);
+        // Per-id override: -Dio.sim.flaky.failures.<id>=N
+        String perId = System.getProperty("io.sim.flaky.failures." + id);
+        if (perId != null) {
+            try { return Integer.parseInt(perId.trim()); } catch (NumberFormatException ignore) {}
+        }
+        // Global fallback used when id looks "flaky*"
+        int global = Integer.getInteger("io.sim.flaky.failures", 0);
+        if (id != null && id.startsWith("flaky")) return global;
+        return 0;
+    }
+
+    static long latencyMillis(String id) {
+        long encoded = LoadGenerator.latencyOf(id);
+        return encoded >= 0 ? encoded : Math.abs(id.hashCode() % 150) + 50;
+    }
+
+    /** Blocking attempt: sleeps the latency, then fails if asked to. */
+    static FetchResult attempt(String id, boolean fail) {
+        long start = System.nanoTime();
+        try {
+            Thread.sleep(latencyMillis(id));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt(); // cancelled (timeout or lost hedge)
+            return new FetchResult(id, Duration.ofNanos(System.nanoTime() - start).toMillis(), true, 1);
+        }
+        long durMs = Duration.ofNanos(System.nanoTime() - start).toMillis();
+        return new FetchResult(id, durMs, true, fail ? 1 : 0);
+    }
+
+    /** Non-blocking attempt: completes from a timer, no thread sleeps. */
+    static CompletableFuture<FetchResult> attemptAsync(String id, boolean fail) {
+        long start = System.nanoTime();
+        CompletableFuture<FetchResult> f = new CompletableFuture<>();
+        AsyncTimers.after(latencyMillis(id), TimeUnit.MILLISECONDS).execute(() -> f.complete(
+                new FetchResult(id, Duration.ofNanos(System.nanoTime() - start).toMillis(), true, fail ? 1 : 0)));
+        return f;
+    }
+}
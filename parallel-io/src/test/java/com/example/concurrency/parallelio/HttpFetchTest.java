@@ -0,0 +1,121 @@
+package com.example.concurrency.parallelio;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/** Real fetch path against a local {@link StubHttpServer}. */
+public class HttpFetchTest {
+
+    private StubHttpServer server;
+
+    @BeforeEach
+    void start() throws Exception {
+        server = new StubHttpServer();
+    }
+
+    @AfterEach
+    void stop() {
+        server.close();
+        for (String p : List.of("io.pool", "io.cf.cap", "io.retry.max", "io.retry.backoff.millis", "io.http.timeout.millis")) {
+            System.clearProperty(p);
+        }
+    }
+
+    @Test
+    @DisplayName("CF maps HTTP status and counts streamed body bytes")
+    void cfStatusAndBytes() throws Exception {
+        var results = ParallelFetchCf.run(server.url("/a?size=1000"), server.url("/b?size=5&ms=30"), server.url("/c?status=404"));
+        results.sort(Comparator.comparing(FetchResult::id));
+        assertEquals(List.of(200, 200, 404), results.stream().map(FetchResult::status).toList());
+        assertEquals(List.of(1000L, 5L, 0L), results.stream().map(FetchResult::bytes).toList());
+        assertTrue(results.get(0).success());
+        assertFalse(results.get(2).success(), "404 is a failure");
+        assertEquals(0, ParallelFetchCf.lastAttemptStats().retries(), "404 is not retried");
+    }
+
+    @Test
+    @DisplayName("Loom maps HTTP status and counts streamed body bytes")
+    void loomStatusAndBytes() throws Exception {
+        System.setProperty("io.retry.max", "0"); // 500 is retryable; keep the test fast
+        var results = ParallelFetchLoom.run(server.url("/a?size=2048"), server.url("/b?status=500"));
+        results.sort(Comparator.comparing(FetchResult::id));
+        assertEquals(200, results.get(0).status());
+        assertEquals(2048, results.get(0).bytes());
+        assertEquals(500, results.get(1).status());
+        assertFalse(results.get(1).success());
+    }
+
+    @Test
+    @DisplayName("Injected 503s are retried until success on both fetchers")
+    void injectedFailuresAreRetried() throws Exception {
+        System.setProperty("io.retry.backoff.millis", "10");
+        var cf = ParallelFetchCf.run(server.url("/f?key=cf&fail=2&size=10"));
+        assertTrue(cf.get(0).success());
+        assertEquals(2, ParallelFetchCf.lastAttemptStats().retries());
+
+        var loom = ParallelFetchLoom.run(server.url("/f?key=loom&fail=2&size=10"));
+        assertTrue(loom.get(0).success());
+        assertEquals(2, ParallelFetchLoom.lastAttemptStats().retries());
+    }
+
+    @Test
+    @DisplayName("Slow responses map to 504 and refused connections to 503")
+    void timeoutAndConnectFailureMapping() throws Exception {
+        int closedPort;
+        try (ServerSocket s = new ServerSocket(0)) {
+            closedPort = s.getLocalPort();
+        }
+        System.setProperty("io.http.timeout.millis", "100");
+        System.setProperty("io.retry.max", "0");
+        String slow = server.url("/slow?ms=1000"), refused = "http://127.0.0.1:" + closedPort + "/x";
+        var byId = new java.util.HashMap<String, Integer>();
+        for (var r : ParallelFetchLoom.run(slow, refused)) byId.put(r.id(), r.status());
+        assertEquals(HttpFetch.STATUS_TIMEOUT, byId.get(slow));
+        assertEquals(HttpFetch.STATUS_CONNECT_FAILED, byId.get(refused));
+
+        var cf = ParallelFetchCf.run(server.url("/slow?ms=1000&key=cf"));
+        assertEquals(HttpFetch.STATUS_TIMEOUT, cf.get(0).status());
+    }
+
+    @Test
+    @DisplayName("Sequential requests reuse one pooled connection")
+    void connectionReuse() throws Exception {
+        System.setProperty("io.cf.cap", "1");
+        List<String> urls = new ArrayList<>();
+        for (int i = 0; i < 10; i++) urls.add(server.url("/r" + i + "?size=100"));
+        var results = ParallelFetchCf.run(urls.toArray(String[]::new));
+        assertTrue(results.stream().allMatch(FetchResult::success));
+        assertEquals(10, server.requestCount());
+        assertEquals(1, server.connectionCount(), "one long-lived client should reuse its connection");
+    }
+
+    @Test
+    @DisplayName("CF fixed pool keeps real requests off its threads; only io.cf.cap bounds them")
+    void fixedPoolDoesNotHoldThreadsForRealRequests() throws Exception {
+        System.setProperty("io.pool", "2");
+        List<String> urls = new ArrayList<>();
+        for (int i = 0; i < 8; i++) urls.add(server.url("/pool" + i + "?ms=200"));
+        long t0 = System.nanoTime();
+        var results = ParallelFetchCf.run(urls.toArray(String[]::new));
+        long ms = (System.nanoTime() - t0) / 1_000_000;
+        assertTrue(results.stream().allMatch(FetchResult::success));
+        assertEquals(8, ParallelFetchCf.lastPeakConcurrency(), "sendAsync requests overlap beyond io.pool=2");
+        assertTrue(ms < 4 * 200, "8 x 200ms on 2 pool threads would take four rounds; took " + ms + "ms");
+
+        System.setProperty("io.cf.cap", "3");
+        urls.clear();
+        for (int i = 0; i < 6; i++) urls.add(server.url("/cap" + i + "?ms=50"));
+        results = ParallelFetchCf.run(urls.toArray(String[]::new));
+        assertTrue(results.stream().allMatch(FetchResult::success));
+        assertEquals(3, ParallelFetchCf.lastPeakConcurrency(), "the cap, not the pool, bounds real requests");
+    }
+}
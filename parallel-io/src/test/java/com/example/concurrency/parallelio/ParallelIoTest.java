@@ -105,4 +105,595 @@ public class ParallelIoTest {
         }
     }
 
+    @Test
+    @DisplayName("Inputs that are neither simulated nor http(s) fail fast instead of being simulated")
+    void unknownInputsFail() throws Exception {
+        var results = ParallelFetchLoom.run("typoA", "ftp://example.com/x");
+        assertEquals(2, results.size());
+        for (var r : results) {
+            assertFalse(r.simulated(), r.id());
+            assertFalse(r.success(), r.id());
+            assertEquals(HttpFetch.STATUS_BAD_INPUT, r.status(), r.id());
+        }
+        assertEquals(0, ParallelFetchLoom.lastAttemptStats().retries(), "a bad input is not retried");
+    }
+
+    @Test
+    @DisplayName("Scoped fan-out returns results in completion order")
+    void scopedCompletionOrder() throws Exception {
+        // simSlow=56ms, simS1=91ms, simX=137ms (deterministic simulated latencies)
+        var o = ParallelFetchScoped.run(null, ParallelFetchScoped.Policy.ALL, "simX", "simSlow", "simS1");
+        assertTrue(o.complete());
+        assertEquals(java.util.List.of("simSlow", "simS1", "simX"),
+                o.results().stream().map(FetchResult::id).toList());
+    }
+
+    @Test
+    @DisplayName("Scoped fan-out coalesces duplicates and publishes its stats like the other strategies")
+    void scopedGoesThroughTheEngine() throws Exception {
+        var o = ParallelFetchScoped.run(null, ParallelFetchScoped.Policy.ALL, "simSlow", "simSlow", "simSlow", "simS1");
+        assertEquals(4, o.results().size());
+        assertEquals(2, FetchEngine.lastCacheStats().misses());
+        assertEquals(2, FetchEngine.lastCacheStats().coalesced());
+        assertEquals(2, FetchEngine.lastAttemptStats().requests(), "backend sees each id once");
+    }
+
+    @Test
+    @DisplayName("Scoped deadline cancels stragglers and keeps partial results")
+    void scopedDeadlineKeepsPartialResults() throws Exception {
+        var o = ParallelFetchScoped.run(java.time.Duration.ofMillis(100), ParallelFetchScoped.Policy.ALL,
+                "simSlow", "simX", "simY");
+        assertTrue(o.timedOut(), "deadline should fire before simX/simY finish");
+        assertEquals(1, o.results().size());
+        assertEquals("simSlow", o.results().get(0).id());
+        assertEquals(2, o.cancelled());
+        assertTrue(o.elapsedMillis() < 137, "tail latency capped by the deadline; got " + o.elapsedMillis());
+    }
+
+    @Test
+    @DisplayName("Scoped policy names parse case-insensitively and unknown ones are rejected")
+    void scopedPolicyParsing() {
+        assertEquals(ParallelFetchScoped.Policy.ALL, ParallelFetchScoped.Policy.parse(" All "));
+        assertEquals(ParallelFetchScoped.Policy.SHUTDOWN_ON_FAILURE, ParallelFetchScoped.Policy.parse("failfast"));
+        assertEquals(ParallelFetchScoped.Policy.SHUTDOWN_ON_SUCCESS, ParallelFetchScoped.Policy.parse("SHUTDOWN_ON_SUCCESS"));
+        var e = assertThrows(IllegalArgumentException.class, () -> ParallelFetchScoped.Policy.parse("fail-fast"));
+        assertTrue(e.getMessage().contains("failfast") && e.getMessage().contains("firstsuccess"), e.getMessage());
+    }
+
+    @Test
+    @DisplayName("Engine strategy names parse case-insensitively and unknown ones are rejected")
+    void strategyParsing() {
+        assertEquals(FetchEngine.Strategy.FIXED_POOL_CF, FetchEngine.Strategy.parse(" CF "));
+        assertEquals(FetchEngine.Strategy.VIRTUAL_THREADS, FetchEngine.Strategy.parse("loom"));
+        assertEquals(FetchEngine.Strategy.ASYNC_NIO, FetchEngine.Strategy.parse("ASYNC_NIO"));
+        var e = assertThrows(IllegalArgumentException.class, () -> FetchEngine.Strategy.parse("asnyc"));
+        assertTrue(e.getMessage().contains("asnyc") && e.getMessage().contains("async"), e.getMessage());
+    }
+
+    @Test
+    @DisplayName("Scoped shutdown-on-failure cancels siblings after the first failed input")
+    void scopedShutdownOnFailure() throws Exception {
+        System.setProperty("io.sim.flaky.failures", "3");
+        System.setProperty("io.retry.max", "0");
+        try {
+            var o = ParallelFetchScoped.run(null, ParallelFetchScoped.Policy.SHUTDOWN_ON_FAILURE,
+                    "flakyS1", "simX", "simY");
+            assertEquals(1, o.results().size());
+            assertFalse(o.results().get(0).success(), "flakyS1 gives up after 0 retries");
+            assertEquals(2, o.cancelled());
+        } finally {
+            System.clearProperty("io.sim.flaky.failures");
+            System.clearProperty("io.retry.max");
+        }
+    }
+
+    @Test
+    @DisplayName("Scoped shutdown-on-success returns the fastest input and cancels the rest")
+    void scopedShutdownOnSuccess() throws Exception {
+        var o = ParallelFetchScoped.run(null, ParallelFetchScoped.Policy.SHUTDOWN_ON_SUCCESS,
+                "simX", "simSlow", "simY");
+        assertEquals("simSlow", o.results().get(0).id());
+        assertTrue(o.results().get(0).success());
+        assertTrue(o.cancelled() >= 1);
+        assertTrue(o.elapsedMillis() < 137, "should not wait for slower siblings; got " + o.elapsedMillis());
+    }
+
+    @Test
+    @DisplayName("CF stream emits every result in completion order within the window")
+    void cfStreamEmitsInCompletionOrder() throws Exception {
+        System.setProperty("io.pool", "16");
+        System.setProperty("io.stream.window", "3");
+        try {
+            var seen = new java.util.concurrent.ConcurrentLinkedQueue<FetchResult>();
+            var summary = ParallelFetchCf.stream(java.util.List.of("simX", "simSlow", "simS1"), seen::add);
+            assertEquals(3, summary.total());
+            assertEquals(3, summary.success());
+            assertEquals(java.util.List.of("simSlow", "simS1", "simX"), seen.stream().map(FetchResult::id).toList());
+            assertTrue(ParallelFetchCf.lastPeakConcurrency() <= 3, "window bounds in-flight work");
+        } finally {
+            System.clearProperty("io.pool");
+            System.clearProperty("io.stream.window");
+        }
+    }
+
+    @Test
+    @DisplayName("A throwing stream consumer fails the run and stops pulling inputs")
+    void streamConsumerFailurePropagates() {
+        System.setProperty("io.stream.window", "1");
+        try {
+            var pulled = new java.util.concurrent.atomic.AtomicInteger();
+            Iterable<String> inputs = () -> java.util.stream.IntStream.range(0, 100)
+                    .peek(i -> pulled.incrementAndGet()).mapToObj(i -> "simSink" + i).iterator();
+            var e = assertThrows(IllegalStateException.class, () -> ParallelFetchLoom.stream(inputs, r -> {
+                throw new IllegalStateException("consumer broke on " + r.id());
+            }));
+            assertEquals("consumer broke on simSink0", e.getMessage());
+            assertTrue(pulled.get() <= 2, "intake stops after the failure; pulled " + pulled.get());
+        } finally {
+            System.clearProperty("io.stream.window");
+        }
+    }
+
+    @Test
+    @DisplayName("Loom stream pulls inputs lazily and never runs ahead of the window")
+    void loomStreamBoundedByWindow() throws Exception {
+        int n = 2_000, window = 250;
+        System.setProperty("io.stream.window", String.valueOf(window));
+        try {
+            var pulled = new java.util.concurrent.atomic.AtomicInteger();
+            var emitted = new java.util.concurrent.atomic.AtomicInteger();
+            var maxAhead = new java.util.concurrent.atomic.AtomicInteger();
+            Iterable<String> lazy = () -> new java.util.Iterator<>() {
+                int i = 0;
+                public boolean hasNext() { return i < n; }
+                public String next() {
+                    int ahead = pulled.incrementAndGet() - emitted.get();
+                    maxAhead.accumulateAndGet(ahead, Math::max);
+                    return "sim" + (i++);
+                }
+            };
+            var summary = ParallelFetchLoom.stream(lazy, r -> emitted.incrementAndGet());
+            assertEquals(n, summary.total());
+            assertEquals(n, emitted.get());
+            // window in flight plus the one input pulled while waiting for a free slot
+            assertTrue(maxAhead.get() <= window + 1, "in-flight inputs exceed window: " + maxAhead.get());
+            assertTrue(summary.maxMillis() >= summary.minMillis());
+        } finally {
+            System.clearProperty("io.stream.window");
+        }
+    }
+
+    @org.junit.jupiter.params.ParameterizedTest
+    @org.junit.jupiter.params.provider.EnumSource(FetchEngine.Strategy.class)
+    @DisplayName("Every engine strategy applies the same cap, retries and peak tracking")
+    void strategiesShareCapRetriesAndPeak(FetchEngine.Strategy strategy) throws Exception {
+        System.setProperty("io.cap", "2");
+        System.setProperty("io.sim.flaky.failures", "2");
+        System.setProperty("io.retry.backoff.millis", "10");
+        try {
+            var results = FetchEngine.run(strategy, java.util.List.of("simA", "simB", "simC", "simD", "flakyE"));
+            assertEquals(5, results.size());
+            assertTrue(results.stream().allMatch(FetchResult::success), results.toString());
+            int peak = FetchEngine.lastPeakConcurrency();
+            assertTrue(peak >= 1 && peak <= 2, strategy + " peak should respect cap; got " + peak);
+            assertEquals(2, FetchEngine.lastAttemptStats().retries(), "flakyE retried twice");
+            long prev = Long.MIN_VALUE;
+            for (var r : results) {
+                assertTrue(r.millis() >= prev, "non-decreasing millis");
+                prev = r.millis();
+            }
+        } finally {
+            System.clearProperty("io.cap");
+            System.clearProperty("io.sim.flaky.failures");
+            System.clearProperty("io.retry.backoff.millis");
+        }
+    }
+
+    @Test
+    @DisplayName("Per-host bulkheads cap each destination separately and expose per-host peaks")
+    void hostBulkheadsCapEachDestination() throws Exception {
+        System.setProperty("io.host.limit", "3");
+        System.setProperty("io.host.limit.max", "3");
+        try {
+            var inputs = new java.util.ArrayList<String>();
+            for (char c = 'A'; c < 'A' + 12; c++) { inputs.add("sim" + c); inputs.add("flaky" + c); }
+            var results = FetchEngine.run(FetchEngine.Strategy.VIRTUAL_THREADS, inputs);
+            assertEquals(24, results.size());
+            var peaks = ParallelFetchLoom.lastHostPeaks();
+            assertEquals(3, peaks.get("sim"), peaks.toString());
+            assertEquals(3, peaks.get("flaky"), peaks.toString());
+            assertTrue(FetchEngine.lastPeakConcurrency() <= 6, "global peak is the sum of host limits at most");
+        } finally {
+            System.clearProperty("io.host.limit");
+            System.clearProperty("io.host.limit.max");
+        }
+    }
+
+    @Test
+    @DisplayName("Adaptive host limit grows at steady latency and shrinks on queueing or failures")
+    void hostLimitAdaptsToLatencyAndErrors() throws Exception {
+        var b = new HostBulkheads(new HostBulkheads.Config(10, 2, 40, true)).forHost("svc");
+        java.util.function.BiConsumer<Long, Boolean> fullRound = (rttMs, ok) -> {
+            int n = b.limit();
+            for (int i = 0; i < n; i++) assertTrue(b.tryAcquire());
+            for (int i = 0; i < n; i++) b.release(rttMs * 1_000_000L, ok);
+        };
+        for (int i = 0; i < 5; i++) fullRound.accept(10L, true);
+        int grown = b.limit();
+        assertTrue(grown > 10, "steady latency should raise the limit; got " + grown);
+        for (int i = 0; i < grown; i++) assertTrue(b.tryAcquire());
+        assertFalse(b.tryAcquire(), "never admits past the limit");
+        for (int i = 0; i < grown; i++) b.abandon();
+
+        fullRound.accept(100L, true); // 10x the best round trip: requests are queueing
+        int queued = b.limit();
+        assertTrue(queued < grown, "queueing should lower the limit; " + grown + " -> " + queued);
+
+        fullRound.accept(10L, false);
+        assertTrue(b.limit() < queued, "failures should lower the limit");
+        for (int i = 0; i < 20; i++) fullRound.accept(10L, false);
+        assertEquals(2, b.limit(), "limit never drops below the configured minimum");
+        assertEquals(0, b.inFlight());
+    }
+
+    @Test
+    @DisplayName("Runs with the same host settings share learned limits but report their own peaks")
+    void hostLimitsCarryAcrossRuns() {
+        var cfg = new HostBulkheads.Config(7, 2, 40, true);
+        assertSame(HostBulkheads.shared(cfg), HostBulkheads.shared(new HostBulkheads.Config(7, 2, 40, true)));
+        var first = HostBulkheads.shared(cfg).session();
+        var b = first.forInput("carryA");
+        for (int i = 0; i < 3; i++) {
+            int n = b.limit();
+            for (int j = 0; j < n; j++) { assertTrue(b.tryAcquire()); first.admitted("carryA", b); }
+            for (int j = 0; j < n; j++) b.release(10_000_000L, true);
+        }
+        int learned = b.limit();
+        assertTrue(learned > 7, "first run grows the limit; got " + learned);
+
+        var second = HostBulkheads.shared(cfg).session();
+        assertSame(b, second.forInput("carryB"), "same destination, same bulkhead");
+        assertEquals(learned, second.forInput("carryB").limit(), "second run starts from the learned limit");
+        assertTrue(second.peaks().isEmpty(), "peaks are per run");
+        assertTrue(second.forInput("carryB").tryAcquire());
+        second.admitted("carryB", b);
+        assertEquals(java.util.Map.of("carry", 1), second.peaks());
+        b.abandon();
+    }
+
+    @Test
+    @DisplayName("Duplicate ids in one run share a single in-flight fetch")
+    void duplicatesAreCoalesced() throws Exception {
+        var inputs = new java.util.ArrayList<String>();
+        for (int i = 0; i < 10; i++) { inputs.add("simA"); inputs.add("simB"); }
+        var results = ParallelFetchLoom.run(inputs.toArray(String[]::new));
+        assertEquals(20, results.size(), "every caller still gets a result");
+        var cache = ParallelFetchLoom.lastCacheStats();
+        assertEquals(2, cache.misses());
+        assertEquals(18, cache.coalesced());
+        assertEquals(2, ParallelFetchLoom.lastAttemptStats().requests(), "backend sees each id once");
+    }
+
+    @Test
+    @DisplayName("A fetch that throws before starting does not strand later callers for the id")
+    void synchronousFetchFailureIsNotCoalescedForever() throws Exception {
+        var session = new ResultCache().session(new ResultCache.Config(true, 0, 10));
+        var failed = session.get("simA", () -> { throw new java.util.concurrent.RejectedExecutionException("pool closed"); });
+        assertTrue(failed.isCompletedExceptionally());
+        var next = session.get("simA", () -> java.util.concurrent.CompletableFuture.completedFuture(new FetchResult("simA", 7, true, 0)));
+        assertEquals(7, next.get(1, java.util.concurrent.TimeUnit.SECONDS).millis(), "a fresh fetch, not the dead one");
+        assertEquals(0, session.stats().coalesced());
+    }
+
+    @Test
+    @DisplayName("TTL cache serves repeat runs, evicts least recently used and expires entries")
+    void ttlCacheHitsEvictsAndExpires() throws Exception {
+        System.setProperty("io.cache.ttl.millis", "60000");
+        System.setProperty("io.cache.max.entries", "2");
+        ResultCache.SHARED.clear();
+        try {
+            // 56ms, 91ms, 114ms: simSlow is stored first and so is the one evicted
+            ParallelFetchCf.run("simSlow", "simS1", "simA");
+            assertEquals(new CacheStats(0, 3, 0, 1, 0), ParallelFetchCf.lastCacheStats(), "3 stored into 2 slots");
+
+            var again = ParallelFetchCf.run("simS1", "simA");
+            assertEquals(new CacheStats(2, 0, 0, 0, 0), ParallelFetchCf.lastCacheStats());
+            assertEquals(0, ParallelFetchCf.lastAttemptStats().requests());
+            assertTrue(again.stream().allMatch(r -> r.success() && r.millis() == 0), again.toString());
+
+            System.setProperty("io.cache.ttl.millis", "1");
+            ParallelFetchCf.run("simD");
+            Thread.sleep(20);
+            ParallelFetchLoom.run("simD");
+            assertEquals(new CacheStats(0, 1, 0, 0, 1), ParallelFetchLoom.lastCacheStats(), "expired entry is refetched, not evicted");
+        } finally {
+            System.clearProperty("io.cache.ttl.millis");
+            System.clearProperty("io.cache.max.entries");
+            ResultCache.SHARED.clear();
+        }
+    }
+
+    @Test
+    @DisplayName("Breaker opens on failures, short-circuits the rest, then closes after a good probe")
+    void breakerOpensShortCircuitsAndRecovers() throws Exception {
+        System.setProperty("io.breaker.enabled", "true");
+        System.setProperty("io.breaker.window", "4");
+        System.setProperty("io.breaker.min.calls", "4");
+        System.setProperty("io.breaker.open.millis", "200");
+        System.setProperty("io.breaker.half.open.calls", "1");
+        System.setProperty("io.sim.flaky.failures", "100");
+        System.setProperty("io.retry.max", "0");
+        System.setProperty("io.cap", "1");
+        CircuitBreakers.SHARED.clear();
+        try {
+            var results = ParallelFetchLoom.run("flakyA", "flakyB", "flakyC", "flakyD", "flakyE", "flakyF", "flakyG", "flakyH");
+            long fastFailed = results.stream().filter(FetchResult::shortCircuited).count();
+            assertEquals(4, fastFailed, results.toString());
+            assertEquals(new BreakerStats(4, 1, 0, 0), ParallelFetchLoom.lastBreakerStats());
+            assertEquals(4, ParallelFetchLoom.lastAttemptStats().requests() - fastFailed, "only 4 reached the backend");
+
+            ParallelFetchCf.run("flakyI");
+            assertEquals(new BreakerStats(1, 0, 0, 0), ParallelFetchCf.lastBreakerStats(), "still open: rejected before the pool");
+
+            Thread.sleep(250);
+            System.setProperty("io.sim.flaky.failures", "0");
+            var probe = ParallelFetchCf.run("flakyJ");
+            assertTrue(probe.get(0).success());
+            assertEquals(new BreakerStats(0, 0, 1, 1), ParallelFetchCf.lastBreakerStats());
+            assertEquals(CircuitBreakers.State.CLOSED, CircuitBreakers.SHARED.states().get("flaky"));
+        } finally {
+            for (String k : new String[] {"io.breaker.enabled", "io.breaker.window", "io.breaker.min.calls",
+                    "io.breaker.open.millis", "io.breaker.half.open.calls", "io.sim.flaky.failures", "io.retry.max", "io.cap"}) {
+                System.clearProperty(k);
+            }
+            CircuitBreakers.SHARED.clear();
+        }
+    }
+
+    @Test
+    @DisplayName("Breaker opens when too many calls are slow even if they succeed")
+    void breakerOpensOnSlowCalls() {
+        var cfg = new CircuitBreakers.Config(true, 4, 4, 1.0, 100, 0.5, 60_000, 1);
+        var breakers = new CircuitBreakers();
+        var session = breakers.session(cfg);
+        var b = session.forInput("svcA");
+        for (long ms : new long[] {10, 150, 20, 300}) {
+            assertTrue(session.tryAcquire(b));
+            session.onResult(b, true, ms * 1_000_000L);
+        }
+        assertEquals(CircuitBreakers.State.OPEN, breakers.states().get("svc"));
+        assertTrue(session.rejectsNow(b));
+        assertFalse(session.tryAcquire(b));
+        assertEquals(new BreakerStats(2, 1, 0, 0), session.stats());
+    }
+
+    @Test
+    @DisplayName("Shared CF executor outlives runs and grows past io.pool for wait-bound work")
+    void sharedCfExecutorScalesAcrossRuns() throws Exception {
+        System.setProperty("io.cf.executor", "shared");
+        System.setProperty("io.pool", "2");
+        try {
+            var inputs = new String[16];
+            for (int i = 0; i < inputs.length; i++) inputs[i] = "sim" + (char) ('A' + i);
+            ParallelFetchCf.run(inputs);
+            var pool = CfExecutors.sharedPool();
+            assertTrue(pool.getMaximumPoolSize() > 2, "sleep-bound run should widen the pool; got " + pool.getMaximumPoolSize());
+
+            ParallelFetchCf.run(inputs);
+            assertSame(pool, CfExecutors.sharedPool(), "same pool across runs");
+            assertFalse(pool.isShutdown());
+            assertTrue(ParallelFetchCf.lastPeakConcurrency() > 2, "peak " + ParallelFetchCf.lastPeakConcurrency());
+
+            System.setProperty("io.cf.executor", "sharde");
+            assertThrows(IllegalArgumentException.class, () -> ParallelFetchCf.run(inputs), "a typo must not fall back to fixed");
+            assertEquals(CfExecutors.Mode.FIXED, CfExecutors.Mode.parse(" Fixed "));
+        } finally {
+            System.clearProperty("io.cf.executor");
+            System.clearProperty("io.pool");
+        }
+    }
+
+    @Test
+    @DisplayName("Managed CF executor compensates blocked workers beyond its parallelism")
+    void managedCfExecutorCompensatesBlocking() throws Exception {
+        System.setProperty("io.cf.executor", "managed");
+        try {
+            int parallelism = CfExecutors.managedPool().getParallelism();
+            var inputs = new String[parallelism * 4];
+            for (int i = 0; i < inputs.length; i++) inputs[i] = "sim" + i;
+            var results = ParallelFetchCf.run(inputs);
+            assertEquals(inputs.length, results.size());
+            assertTrue(ParallelFetchCf.lastPeakConcurrency() > parallelism,
+                    "peak " + ParallelFetchCf.lastPeakConcurrency() + " should exceed parallelism " + parallelism);
+        } finally {
+            System.clearProperty("io.cf.executor");
+        }
+    }
+
+    @Test
+    @DisplayName("CF and Loom report comparable latency breakdowns and append them as JSON lines")
+    void latencyBreakdownAndJsonExport(@org.junit.jupiter.api.io.TempDir java.nio.file.Path dir) throws Exception {
+        var file = dir.resolve("latency.jsonl");
+        System.setProperty("io.report.json", file.toString());
+        System.setProperty("io.cap", "1");
+        System.setProperty("io.sim.flaky.failures", "2");
+        System.setProperty("io.retry.backoff.millis", "10");
+        try {
+            for (var strategy : new FetchEngine.Strategy[] {FetchEngine.Strategy.FIXED_POOL_CF, FetchEngine.Strategy.VIRTUAL_THREADS}) {
+                var results = FetchEngine.run(strategy, java.util.List.of("simA", "simB", "simC", "flakyD"));
+                var lat = FetchEngine.lastLatency();
+                assertEquals(4, lat.total().count());
+                assertEquals(6, lat.attempt().count(), "3 single attempts + 3 for flakyD");
+                assertEquals(3.0, lat.attemptsPerInput().max());
+                assertTrue(lat.queue().max() >= 100, strategy + ": cap of 1 makes inputs queue; " + lat.queue());
+                assertTrue(lat.total().p99() >= lat.fetch().p99() && lat.total().max() >= lat.attempt().max());
+                var flaky = results.stream().filter(r -> r.id().equals("flakyD")).findFirst().orElseThrow();
+                assertEquals(3, flaky.attempts());
+                assertTrue(results.stream().anyMatch(r -> r.queueMillis() > 0), results.toString());
+            }
+            var lines = java.nio.file.Files.readAllLines(file);
+            assertEquals(2, lines.size());
+            assertTrue(lines.get(0).startsWith("{\"strategy\":\"CF\",\"inputs\":4,"), lines.get(0));
+            assertTrue(lines.get(1).startsWith("{\"strategy\":\"Loom\",\"inputs\":4,"), lines.get(1));
+            assertTrue(lines.get(1).contains("\"totalMillis\":{\"count\":4,\"p50\":"), lines.get(1));
+        } finally {
+            for (String k : new String[] {"io.report.json", "io.cap", "io.sim.flaky.failures", "io.retry.backoff.millis"}) {
+                System.clearProperty(k);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Load generator is lazy, seeded and follows its latency distribution")
+    void loadGeneratorDistributions() {
+        var lognormal = new LoadGenerator.Config(20_000, 7, LoadGenerator.Distribution.LOGNORMAL, 0, 0, 50, 0.5, 0, 0, 0.1, 2);
+        var a = new LoadGenerator(lognormal).iterator();
+        var b = new LoadGenerator(lognormal).iterator();
+        long[] ms = new long[20_000];
+        int failing = 0;
+        for (int i = 0; i < ms.length; i++) {
+            String id = a.next();
+            assertEquals(id, b.next(), "same seed, same sequence");
+            assertTrue(id.startsWith("load-" + i + "@"), id);
+            ms[i] = SimulatedBackend.latencyMillis(id);
+            if (SimulatedBackend.failuresBeforeSuccessFor(id) == 2) failing++;
+        }
+        assertFalse(a.hasNext());
+        java.util.Arrays.sort(ms);
+        assertEquals(50, ms[ms.length / 2], 3, "lognormal median");
+        assertTrue(ms[ms.length - 1] > 150, "lognormal has a long right tail");
+        assertEquals(0.1, failing / 20_000.0, 0.01, "failure rate");
+
+        var bimodal = new LoadGenerator.Config(20_000, 7, LoadGenerator.Distribution.BIMODAL, 0, 0, 20, 0, 1_000, 0.05, 0, 1);
+        long outliers = 0;
+        for (String id : new LoadGenerator(bimodal)) {
+            long v = SimulatedBackend.latencyMillis(id);
+            assertTrue((v >= 16 && v <= 24) || (v >= 900 && v <= 1_100), id);
+            if (v >= 900) outliers++;
+        }
+        assertEquals(0.05, outliers / 20_000.0, 0.01, "outlier share");
+
+        assertEquals(LoadGenerator.Distribution.UNIFORM, LoadGenerator.Distribution.parse("Uniform"));
+        assertEquals(LoadGenerator.Distribution.LOGNORMAL, LoadGenerator.Distribution.parse("lognorm"));
+        assertThrows(IllegalArgumentException.class, () -> LoadGenerator.Distribution.parse("log-normal"));
+    }
+
+    @Test
+    @DisplayName("Load generator measures throughput, peak and memory per in-flight input")
+    void loadGeneratorMeasuresStrategy() throws Exception {
+        System.setProperty("io.retry.max", "0");
+        System.setProperty("io.stream.window", "500");
+        try {
+            var cfg = new LoadGenerator.Config(5_000, 1, LoadGenerator.Distribution.UNIFORM, 1, 5, 0, 0, 0, 0, 0.1, 1);
+            var report = new LoadGenerator(cfg).measure(FetchEngine.Strategy.VIRTUAL_THREADS);
+            assertEquals(5_000, report.inputs());
+            assertEquals(500, report.failures(), 100);
+            assertTrue(report.peakConcurrency() > 1 && report.peakConcurrency() <= 500, report.toString());
+            assertTrue(report.throughputPerSec() > 0 && report.peakThreads() > 0, report.toString());
+        } finally {
+            System.clearProperty("io.retry.max");
+            System.clearProperty("io.stream.window");
+        }
+    }
+
+    @Test
+    @DisplayName("Aggregate keeps exactly the K slowest in a bounded heap plus counts and percentiles")
+    void aggregateKeepsTopKSlowest() {
+        var agg = new ResultAggregate(3);
+        for (int i = 0; i < 1_000; i++) {
+            int ms = (i * 7919) % 1_000; // every value 0..999 once, shuffled
+            agg.record(new FetchResult("in" + ms, ms, true, ms % 10 == 0 ? 1 : 0));
+        }
+        agg.record(FetchResult.failed("simNever", 0)); // no latency, still counted
+
+        assertEquals(1_001, agg.total());
+        assertEquals(101, agg.failure());
+        assertEquals(1_000, agg.attempts());
+        assertEquals(java.util.List.of("in999", "in998", "in997"),
+                agg.slowest().stream().map(ResultAggregate.Slow::id).toList());
+        assertEquals(999, agg.maxMillis());
+        assertEquals(500, agg.percentileMillis(0.5), 500 * 0.07);
+        assertEquals(990, agg.percentileMillis(0.99), 990 * 0.07);
+    }
+
+    @Test
+    @DisplayName("Loom aggregate folds a lazy fan-out without collecting results")
+    void loomAggregateOverLazyInputs() throws Exception {
+        System.setProperty("io.retry.max", "0");
+        System.setProperty("io.stream.window", "200");
+        try {
+            int n = 2_000;
+            Iterable<String> inputs = () -> java.util.stream.IntStream.range(0, n)
+                    .mapToObj(i -> "load-" + i + "@" + (i == 7 ? 120 : i == 1_500 ? 100 : 1 + i % 5)).iterator();
+            var agg = ParallelFetchLoom.aggregate(inputs, 2);
+            assertEquals(n, agg.total());
+            assertEquals(n, agg.success());
+            assertEquals(java.util.List.of("load-7@120", "load-1500@100"),
+                    agg.slowest().stream().map(ResultAggregate.Slow::id).toList());
+            assertTrue(agg.percentileMillis(0.5) < 50, agg.toString());
+            assertTrue(ParallelFetchLoom.lastPeakConcurrency() <= 200);
+        } finally {
+            System.clearProperty("io.retry.max");
+            System.clearProperty("io.stream.window");
+        }
+    }
+
+    @Test
+    @DisplayName("Runs record results, attempts and fetch timings in the shared metrics registry")
+    void runsRecordSharedMetrics() throws Exception {
+        var reg = com.example.concurrency.metrics.MetricsRegistry.global();
+        var ok = reg.counter("io_results_total", "", "strategy", "Loom", "outcome", "success");
+        var attempts = reg.counter("io_attempts_total", "", "strategy", "Loom");
+        var fetch = reg.timer("io_fetch_seconds", "", "strategy", "Loom");
+        long ok0 = ok.get(), attempts0 = attempts.get(), fetch0 = fetch.count();
+
+        var results = ParallelFetchLoom.run("simA", "simB", "simC");
+
+        assertEquals(results.stream().filter(FetchResult::success).count(), ok.get() - ok0);
+        assertEquals(ParallelFetchLoom.lastAttemptStats().attempts(), attempts.get() - attempts0);
+        assertEquals(3, fetch.count() - fetch0);
+        assertEquals(ParallelFetchLoom.lastPeakConcurrency(),
+                reg.gauge("io_peak_concurrency", "", "strategy", "Loom").get());
+    }
+
+    @Test
+    @DisplayName("Fetch p99 over the threshold dumps the JFR ring buffer with the run event")
+    void slowP99DumpsRecording(@org.junit.jupiter.api.io.TempDir java.nio.file.Path dir) throws Exception {
+        System.setProperty("jfr.enabled", "true");
+        System.setProperty("jfr.dir", dir.toString());
+        System.setProperty("jfr.trigger.fetch.p99.millis", "50");
+        System.setProperty("io.retry.max", "0");
+        try {
+            ParallelFetchLoom.run("simA", "simB", "simX"); // 114..137ms each
+            java.util.List<java.nio.file.Path> dumps;
+            try (var files = java.nio.file.Files.list(dir)) {
+                dumps = files.toList();
+            }
+            assertEquals(1, dumps.size(), dumps.toString());
+            assertTrue(dumps.get(0).getFileName().toString().startsWith("parallel-io-fetch-p99-"));
+            var run = jdk.jfr.consumer.RecordingFile.readAllEvents(dumps.get(0)).stream()
+                    .filter(e -> e.getEventType().getName().equals("com.example.concurrency.FetchRun"))
+                    .findFirst().orElseThrow();
+            assertEquals("Loom", run.getString("strategy"));
+            assertEquals(3, run.getLong("inputs"));
+
+            var scopedDir = java.nio.file.Files.createDirectory(dir.resolve("scoped"));
+            System.setProperty("jfr.dir", scopedDir.toString());
+            ParallelFetchScoped.run(null, ParallelFetchScoped.Policy.ALL, "simA", "simB", "simX");
+            try (var files = java.nio.file.Files.list(scopedDir)) {
+                dumps = files.toList();
+            }
+            assertEquals(1, dumps.size(), "the scoped path is watched too: " + dumps);
+            var scoped = jdk.jfr.consumer.RecordingFile.readAllEvents(dumps.get(0)).stream()
+                    .filter(e -> e.getEventType().getName().equals("com.example.concurrency.FetchRun"))
+                    .findFirst().orElseThrow();
+            assertEquals("Scope", scoped.getString("strategy"));
+            assertEquals(3, scoped.getLong("inputs"));
+        } finally {
+            System.setProperty("jfr.enabled", "false"); // back to the build's default for tests
+            System.clearProperty("jfr.dir");
+            System.clearProperty("jfr.trigger.fetch.p99.millis");
+            System.clearProperty("io.retry.max");
+        }
+    }
 }
@@ -0,0 +1,164 @@
+package com.example.concurrency.parallelio;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/** Attempt policy: hedging, per-attempt timeouts, retry budget and backoff. */
+public class RetryEngineTest {
+
+    private static RetryEngine<String> engine(RetryEngine.Config cfg, LatencyTracker t) {
+        return new RetryEngine<>(cfg, "ok"::equals, t);
+    }
+
+    /** Sleeps, reporting "ok"/"fail"; an interrupted sleep sets {@code interrupted} and fails. */
+    private static String sleepThen(long ms, String outcome, AtomicBoolean interrupted) {
+        try {
+            Thread.sleep(ms);
+            return outcome;
+        } catch (InterruptedException e) {
+            interrupted.set(true);
+            return "fail";
+        }
+    }
+
+    @Test
+    @DisplayName("Slow primary is hedged after observed p95; hedge wins and loser is interrupted")
+    void hedgeWinsAndCancelsLoser() throws Exception {
+        var tracker = new LatencyTracker();
+        for (int i = 0; i < 30; i++) tracker.record("svc", 20_000_000L); // p95 = 20ms
+        var cfg = new RetryEngine.Config(10, 100, 3, 0, true, 0.95, 20, 0.2, 10);
+        var e = engine(cfg, tracker);
+        var primaryInterrupted = new AtomicBoolean();
+
+        long t0 = System.nanoTime();
+        String r = e.execute("svc", n -> n == 0 ? sleepThen(2_000, "ok", primaryInterrupted) : sleepThen(10, "ok", new AtomicBoolean()),
+                () -> "timeout");
+        long ms = (System.nanoTime() - t0) / 1_000_000;
+
+        assertEquals("ok", r);
+        assertTrue(ms < 500, "hedge should cap latency; took " + ms + "ms");
+        var s = e.stats();
+        assertEquals(1, s.hedges());
+        assertEquals(1, s.hedgeWins());
+        assertEquals(1, s.wastedAttempts());
+        Thread.sleep(50);
+        assertTrue(primaryInterrupted.get(), "losing primary should be interrupted");
+    }
+
+    @Test
+    @DisplayName("No hedge before enough samples are observed")
+    void noHedgeWhileCold() throws Exception {
+        var cfg = new RetryEngine.Config(10, 100, 3, 0, true, 0.95, 20, 0.2, 10);
+        var e = engine(cfg, new LatencyTracker());
+        assertEquals("ok", e.execute("cold", n -> sleepThen(30, "ok", new AtomicBoolean()), () -> "timeout"));
+        assertEquals(0, e.stats().hedges());
+        assertEquals(1, e.stats().attempts());
+    }
+
+    @Test
+    @DisplayName("Per-attempt timeout abandons a stalled attempt and retries")
+    void attemptTimeoutTurnsStallIntoRetry() throws Exception {
+        var cfg = new RetryEngine.Config(10, 100, 3, 50, false, 0.95, 20, 0.2, 10);
+        var e = engine(cfg, new LatencyTracker());
+        var stalledInterrupted = new AtomicBoolean();
+
+        long t0 = System.nanoTime();
+        String r = e.execute("svc", n -> n == 0 ? sleepThen(2_000, "ok", stalledInterrupted) : "ok", () -> "timeout");
+        long ms = (System.nanoTime() - t0) / 1_000_000;
+
+        assertEquals("ok", r);
+        assertTrue(ms < 1_000, "stalled attempt should be cut at the timeout; took " + ms + "ms");
+        assertEquals(1, e.stats().timeouts());
+        assertEquals(1, e.stats().retries());
+        Thread.sleep(50);
+        assertTrue(stalledInterrupted.get());
+    }
+
+    @Test
+    @DisplayName("All attempts timing out reports the timeout result")
+    void allAttemptsTimeOut() throws Exception {
+        var cfg = new RetryEngine.Config(0, 0, 1, 20, false, 0.95, 20, 0.2, 10);
+        var e = engine(cfg, new LatencyTracker());
+        assertEquals("timeout", e.execute("svc", n -> sleepThen(1_000, "ok", new AtomicBoolean()), () -> "timeout"));
+        assertEquals(2, e.stats().timeouts());
+    }
+
+    @Test
+    @DisplayName("Retry budget caps retries across a run of always-failing requests")
+    void retryBudgetCapsRetryStorm() throws Exception {
+        var cfg = new RetryEngine.Config(0, 0, Integer.MAX_VALUE, 0, false, 0.95, 20, 0.0, 3);
+        var e = engine(cfg, new LatencyTracker());
+        var calls = new AtomicInteger();
+        IntFunction<String> alwaysFail = n -> { calls.incrementAndGet(); return "fail"; };
+        for (int i = 0; i < 10; i++) {
+            assertEquals("fail", e.execute("svc", alwaysFail, () -> "timeout"));
+        }
+        var s = e.stats();
+        assertEquals(3, s.retries(), "min retries only, ratio 0");
+        assertEquals(10, s.budgetDenied());
+        assertEquals(13, calls.get());
+    }
+
+    @Test
+    @DisplayName("Hedge quantile is cached and refreshed after a batch of new samples")
+    void quantileIsCachedBetweenRefreshes() {
+        var tracker = new LatencyTracker();
+        for (int i = 0; i < 30; i++) tracker.record("svc", 20_000_000L);
+        assertEquals(20_000_000L, tracker.quantileNanos("svc", 0.95, 20));
+        for (int i = 0; i < LatencyTracker.REFRESH_EVERY - 1; i++) tracker.record("svc", 90_000_000L);
+        assertEquals(20_000_000L, tracker.quantileNanos("svc", 0.95, 20), "not re-sorted yet");
+        tracker.record("svc", 90_000_000L);
+        assertEquals(90_000_000L, tracker.quantileNanos("svc", 0.95, 20), "refreshed after REFRESH_EVERY samples");
+        assertEquals(20_000_000L, tracker.quantileNanos("svc", 0.5, 20), "a different quantile is computed, not reused");
+        assertEquals(-1, tracker.quantileNanos("svc", 0.5, 1_000));
+    }
+
+    @Test
+    @DisplayName("Concurrent failing requests never retry past the budget")
+    void retryBudgetHoldsUnderConcurrency() throws Exception {
+        var cfg = new RetryEngine.Config(0, 0, Integer.MAX_VALUE, 0, false, 0.95, 20, 0.0, 5);
+        var e = engine(cfg, new LatencyTracker());
+        var start = new java.util.concurrent.CountDownLatch(1);
+        IntFunction<String> alwaysFail = n -> { Thread.yield(); return "fail"; };
+        try (var pool = java.util.concurrent.Executors.newFixedThreadPool(16)) {
+            for (int i = 0; i < 16; i++) {
+                pool.submit(() -> {
+                    start.await();
+                    for (int j = 0; j < 20; j++) e.execute("svc", alwaysFail, () -> "timeout");
+                    return null;
+                });
+            }
+            start.countDown();
+        }
+        var s = e.stats();
+        assertEquals(5, s.retries(), "exactly the budget, however the threads interleave");
+        assertEquals(16 * 20, s.budgetDenied());
+    }
+
+    @Test
+    @DisplayName("Backoff grows exponentially within equal-jitter bounds and respects the cap")
+    void backoffExponentialWithJitter() {
+        var cfg = new RetryEngine.Config(100, 1_000, 3, 0, false, 0.95, 20, 0.2, 10);
+        var e = engine(cfg, new LatencyTracker());
+        for (int i = 0; i < 50; i++) {
+            long b0 = e.backoffMillis(0), b2 = e.backoffMillis(2), b10 = e.backoffMillis(10);
+            assertTrue(b0 >= 50 && b0 <= 100, "retry 0: " + b0);
+            assertTrue(b2 >= 200 && b2 <= 400, "retry 2: " + b2);
+            assertTrue(b10 >= 500 && b10 <= 1_000, "retry 10 capped: " + b10);
+        }
+    }
+
+    @Test
+    @DisplayName("Input classes group sim ids by prefix and URLs by host")
+    void inputClasses() {
+        assertEquals("sim", LatencyTracker.classOf("simA"));
+        assertEquals("flaky", LatencyTracker.classOf("flakyCF"));
+        assertEquals("example.com", LatencyTracker.classOf("https://example.com/a?b=c"));
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.concurrency.parallelio;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Local HTTP stand-in for network-free tests of the real fetch path.
+ * Query parameters per request:
+ *   ms=N      delay before responding
+ *   size=N    body size in bytes
+ *   status=N  response status (default 200)
+ *   fail=N    first N hits for the same path+key answer 503
+ *   key=K     groups hits for {@code fail}
+ */
+final class StubHttpServer implements AutoCloseable {
+    private final HttpServer server;
+    private final ExecutorService exec = Executors.newVirtualThreadPerTaskExecutor();
+    private final Set<String> connections = ConcurrentHashMap.newKeySet();
+    private final Map<String, AtomicInteger> hits = new ConcurrentHashMap<>();
+    private final AtomicInteger requests = new AtomicInteger();
+
+    StubHttpServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.setExecutor(exec);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    String url(String pathAndQuery) {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + pathAndQuery;
+    }
+
+    /** Distinct client connections seen (remote address:port). */
+    int connectionCount() {
+        return connections.size();
+    }
+
+    int requestCount() {
+        return requests.get();
+    }
+
+    private void handle(HttpExchange ex) throws IOException {
+        try (ex) {
+            requests.incrementAndGet();
+            connections.add(ex.getRemoteAddress().toString());
+            Map<String, String> q = parse(ex.getRequestURI().getRawQuery());
+            long ms = Long.parseLong(q.getOrDefault("ms", "0"));
+            int size = Integer.parseInt(q.getOrDefault("size", "0"));
+            int status = Integer.parseInt(q.getOrDefault("status", "200"));
+            int fail = Integer.parseInt(q.getOrDefault("fail", "0"));
+            String key = ex.getRequestURI().getPath() + "#" + q.getOrDefault("key", "");
+            int n = hits.computeIfAbsent(key, k -> new AtomicInteger()).getAndIncrement();
+            if (ms > 0) {
+                try {
+                    Thread.sleep(ms);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+            int code = n < fail ? 503 : status;
+            ex.getRequestBody().readAllBytes();
+            ex.sendResponseHeaders(code, size == 0 ? -1 : size);
+            if (size > 0) {
+                try (OutputStream out = ex.getResponseBody()) {
+                    out.write(new byte[size]);
+                }
+            }
+        }
+    }
+
+    private static Map<String, String> parse(String query) {
+        Map<String, String> m = new HashMap<>();
+        if (query == null) return m;
+        for (String kv : query.split("&")) {
+            int i = kv.indexOf('=');
+            if (i > 0) m.put(kv.substring(0, i), kv.substring(i + 1));
+        }
+        return m;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        exec.shutdownNow();
+    }
+}
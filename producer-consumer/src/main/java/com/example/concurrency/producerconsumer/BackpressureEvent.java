@@ -0,0 +1,22 @@
+package com.example.concurrency.producerconsumer;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/** One sampler tick of a {@link BackpressureRunner} run, recorded into JFR (free when no recording is on). */
+@Name("com.example.concurrency.Backpressure")
+@Label("Backpressure Sample")
+@Category({"Concurrency Demo", "Producer/Consumer"})
+@Description("Queue depth, workers and producer counters of a backpressure run")
+final class BackpressureEvent extends Event {
+    @Label("Queue Depth") int queueDepth;
+    @Label("Queue Capacity") int queueCapacity;
+    @Label("Active Workers") int activeWorkers;
+    @Label("Completed Tasks") long completedTasks;
+    @Label("Produced") int produced;
+    @Label("Caller Runs") int callerRuns;
+    @Label("Rejected") int rejected;
+}
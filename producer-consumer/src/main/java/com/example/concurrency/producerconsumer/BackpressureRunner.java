@@ -1,14 +1,30 @@
 package com.example.concurrency.producerconsumer;
 
-import java.time.Instant;
+import com.example.concurrency.metrics.ContinuousRecorder;
+import com.example.concurrency.metrics.Counter;
+import com.example.concurrency.metrics.Gauge;
+import com.example.concurrency.metrics.Histogram;
+import com.example.concurrency.metrics.LatencyHistogram;
+import com.example.concurrency.metrics.MetricsRegistry;
+import com.example.concurrency.metrics.PrometheusExporter;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.locks.LockSupport;
 
 /**
  * Producer/Consumer runner demonstrating backpressure using a bounded queue and
  * a rejection handler that runs work on the caller thread.
+ * Counters, queue/worker gauges and task timings also go to the shared {@link MetricsRegistry}
+ * (pc_* metrics), exported via -Dmetrics.file / -Dmetrics.http.port.
+ * A JFR ring buffer runs alongside (unless -Djfr.enabled=false) and is dumped when the queue fills or
+ * caller-runs spike (see {@link SaturationTrigger}).
+ * The producer is paced open-loop ({@link OpenLoopPacer}, {@link RateSchedule}) and response times are
+ * measured from intended send times ({@link #lastResponseTimes()}).
+ * Consumers run a pluggable, seeded {@link Workload} (-Dworkload, see {@link Workloads}).
+ * Given a {@link HandoffSink} (-Dcheckpoint.file), shutdown is graceful: intake stops, in-flight tasks get
+ * -Dshutdown.deadline.millis to finish, and queued or interrupted tasks are handed off instead of lost.
+ * A task that only reaches the sink after it was closed, because the producer or a worker outlived the
+ * deadline and its grace period, is reported and counted in {@link Metrics#lost()}.
  */
 public class BackpressureRunner {
     public record Task(int id, int payload) {}
@@ -16,6 +32,18 @@ public class BackpressureRunner {
     private static volatile int LAST_CHECKSUM = 0;
     public static java.util.List<Integer> lastProcessedIds() { return LAST_PROCESSED_IDS; }
     public static int lastChecksum() { return LAST_CHECKSUM; }
+
+    // ---- shared registry (process totals across runs) ----
+    private static final MetricsRegistry REGISTRY = MetricsRegistry.global();
+    static final Counter PRODUCED = REGISTRY.counter("pc_produced_total", "Tasks submitted by the producer");
+    static final Counter CONSUMED = REGISTRY.counter("pc_consumed_total", "Tasks completed by workers or the caller");
+    static final Counter CALLER_RUNS = REGISTRY.counter("pc_caller_runs_total", "Tasks run on the producer thread by the rejection handler");
+    static final Counter REJECTED = REGISTRY.counter("pc_rejected_total", "Tasks dropped by the rejection policy");
+    static final Gauge QUEUE_DEPTH = REGISTRY.gauge("pc_queue_depth", "Queued tasks at the last sample");
+    static final Gauge ACTIVE_WORKERS = REGISTRY.gauge("pc_active_workers", "Busy workers at the last sample");
+    static final Histogram TASK_TIME = REGISTRY.timer("pc_task_seconds", "Time a task spends running");
+    static final Histogram RESPONSE_TIME = REGISTRY.timer("pc_response_seconds", "Intended send time to task completion");
+    static final Counter MISSED_SENDS = REGISTRY.counter("pc_missed_sends_total", "Scheduled sends the run ended before issuing");
     
     /** A single periodic snapshot of the executor state. */
     public record Sample(long epochMillis, int queueDepth, int activeWorkers, long completedTasks) {}
@@ -28,14 +56,84 @@ public class BackpressureRunner {
         return LAST_SAMPLES;
     }
 
-    /** Captures essential metrics for quick assertions. */
-    public record Metrics(int produced, int consumed, int callerRuns, int rejected, int queueEnd, int samplesCount, int checksum, int idsProcessed) {}
+    /**
+     * Response times of a run in millis, measured from each task's intended send time (open loop),
+     * next to the service time (start to done) and how far the producer fell behind its schedule.
+     * {@code missedSends} are slots the run ended before sending; each is in the response histogram with
+     * the time it had waited by the end of the run, a lower bound.
+     */
+    public record ResponseTimes(long count, double p50Millis, double p99Millis, double maxMillis,
+                                double serviceP50Millis, double serviceP99Millis, long lateSends, double maxLagMillis,
+                                long missedSends) {
+        static final ResponseTimes EMPTY = new ResponseTimes(0, 0, 0, 0, 0, 0, 0, 0, 0);
+
+        static ResponseTimes of(LatencyHistogram response, LatencyHistogram service, OpenLoopPacer pacer) {
+            return new ResponseTimes(response.count(), response.quantile(0.50) / 1_000.0, response.quantile(0.99) / 1_000.0,
+                    response.max() / 1_000.0, service.quantile(0.50) / 1_000.0, service.quantile(0.99) / 1_000.0,
+                    pacer.lateSends(), pacer.maxLagNanos() / 1_000_000.0, pacer.missedSends());
+        }
+
+        @Override public String toString() {
+            return String.format(java.util.Locale.ROOT,
+                    "response p50=%.1fms p99=%.1fms max=%.1fms | service p50=%.1fms p99=%.1fms | late sends=%d max lag=%.1fms missed sends=%d",
+                    p50Millis, p99Millis, maxMillis, serviceP50Millis, serviceP99Millis, lateSends, maxLagMillis, missedSends);
+        }
+    }
+
+    private static volatile ResponseTimes LAST_RESPONSE_TIMES = ResponseTimes.EMPTY;
+
+    /** Response times of the most recent run (from intended send times). */
+    public static ResponseTimes lastResponseTimes() {
+        return LAST_RESPONSE_TIMES;
+    }
 
-    /** Execute a run with the given parameters. */
+    /**
+     * Captures essential metrics for quick assertions. {@code drained}: tasks finished after shutdown began;
+     * {@code handedOff}: tasks given to the {@link HandoffSink} instead of run; {@code lost}: tasks that were
+     * due for a handoff but arrived after the sink was closed, or that the sink failed to take (all 0 without a sink).
+     */
+    public record Metrics(int produced, int consumed, int callerRuns, int rejected, int queueEnd, int samplesCount, int checksum, int idsProcessed,
+                          int drained, int handedOff, int lost) {}
+
+    /** Execute a run with the given parameters and the -Dworkload consumer (default: 2-9ms sleep). */
     public static Metrics run(int poolSize, int queueCapacity, int durationSec, int producerRatePerSec) {
+        return run(poolSize, queueCapacity, durationSec, producerRatePerSec, Workloads.fromSystemProperties());
+    }
+
+    /**
+     * Execute a run whose consumers do {@code workload}. Payloads come from one generator seeded by
+     * -Dworkload.seed (42) and each task's work from {@link Workload#randomFor}, so a run is reproducible.
+     */
+    public static Metrics run(int poolSize, int queueCapacity, int durationSec, int producerRatePerSec, Workload workload) {
+        return run(poolSize, queueCapacity, durationSec, producerRatePerSec, workload, checkpointBacklog(), HandoffSink.fromSystemProperties());
+    }
+
+    /** Tasks left in -Dcheckpoint.file by the previous run, resubmitted before new ones. */
+    static List<Task> checkpointBacklog() {
+        String file = System.getProperty("checkpoint.file");
+        if (file == null || file.isBlank()) return List.of();
+        try {
+            return TaskCheckpoint.read(java.nio.file.Path.of(file));
+        } catch (java.io.IOException e) {
+            throw new java.io.UncheckedIOException("cannot read checkpoint " + file, e);
+        }
+    }
+
+    /**
+     * Execute a run that first submits {@code backlog} (e.g. another runner's handed-off tasks, ids kept) and,
+     * with a non-null {@code sink}, shuts down gracefully: the producer stops, queued tasks go to the sink,
+     * in-flight ones have -Dshutdown.deadline.millis (2000) to finish and are interrupted and handed off after.
+     * A producer still busy at the deadline is interrupted too and hands off the backlog it never submitted.
+     * The sink is closed once the producer and workers have stopped, or after a further second if they have not;
+     * whatever comes later counts as lost. A null sink keeps the -Ddrain behavior.
+     */
+    public static Metrics run(int poolSize, int queueCapacity, int durationSec, int producerRatePerSec, Workload workload,
+                              List<Task> backlog, HandoffSink sink) {
+        final long seed = Long.getLong("workload.seed", 42L);
         final java.util.concurrent.atomic.AtomicInteger nextId = new java.util.concurrent.atomic.AtomicInteger();
         final java.util.concurrent.atomic.AtomicInteger checksum = new java.util.concurrent.atomic.AtomicInteger();
         final java.util.List<Integer> processedIds = new java.util.concurrent.CopyOnWriteArrayList<>();
+        PrometheusExporter.startIfConfigured();
     
         //backoff controls
         final boolean backoffEnabled = Boolean.parseBoolean(System.getProperty("backoff.enabled", "true"));
@@ -48,9 +146,57 @@ public class BackpressureRunner {
         //Graceful drain flag from system property (-Ddrain=true)
         final boolean drain = Boolean.parseBoolean(System.getProperty("drain", "false"));
 
+        AtomicInteger produced = new AtomicInteger();
+        AtomicInteger consumed = new AtomicInteger();
+        AtomicInteger callerRuns = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+
+        // Graceful shutdown: stop intake, hand off what will not run (only with a sink)
+        final long shutdownDeadlineMillis = Long.getLong("shutdown.deadline.millis", 2_000L);
+        final java.util.concurrent.atomic.AtomicBoolean stopping = new java.util.concurrent.atomic.AtomicBoolean();
+        final Handoff handoff = sink != null ? new Handoff(sink) : null;
+        LatencyHistogram response = new LatencyHistogram(); // intended send -> done
+        LatencyHistogram service = new LatencyHistogram();  // started -> done
+
+        /** One submitted task; a named type so a graceful shutdown can get the task back out of the queue. */
+        final class Job implements Runnable {
+            final Task task;
+            final long intendedAt;
+
+            Job(Task task, long intendedAt) {
+                this.task = task;
+                this.intendedAt = intendedAt;
+            }
+
+            @Override
+            public void run() {
+                long startedAt = System.nanoTime();
+                try {
+                    workload.execute(task, Workload.randomFor(seed, task.id()));
+                    checksum.addAndGet(task.id());
+                    processedIds.add(task.id());
+                    consumed.incrementAndGet();
+                    CONSUMED.inc();
+                    long doneAt = System.nanoTime();
+                    TASK_TIME.record(doneAt - startedAt);
+                    RESPONSE_TIME.record(doneAt - intendedAt);
+                    service.recordNanos(doneAt - startedAt);
+                    response.recordNanos(doneAt - intendedAt);
+                } catch (InterruptedException e) {
+                    // cut off by the shutdown deadline: not done, so handed off rather than lost
+                    if (stopping.get() && handoff != null) handoff.accept(task);
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
         // Core executor with bounded queue
         BlockingQueue<Runnable> workQueue = new ArrayBlockingQueue<>(queueCapacity);
 
+        // Always-on JFR ring buffer (off with -Djfr.enabled=false), dumped when the sampler sees saturation
+        ContinuousRecorder recorder = ContinuousRecorder.startIfConfigured("producer-consumer");
+        SaturationTrigger saturation = new SaturationTrigger(recorder, queueCapacity);
+
         // --- Metrics sampler: periodically capture queue depth, active workers, and completed tasks
         List<Sample> _samples = new CopyOnWriteArrayList<>();
         ScheduledExecutorService _sampler = Executors.newSingleThreadScheduledExecutor(r -> {
@@ -82,26 +228,41 @@ public class BackpressureRunner {
                 int active = executor.getActiveCount();
                 long completed = executor.getCompletedTaskCount();
                 _samples.add(new Sample(System.currentTimeMillis(), depth, active, completed));
+                QUEUE_DEPTH.set(depth);
+                ACTIVE_WORKERS.set(active);
+                BackpressureEvent ev = new BackpressureEvent();
+                if (ev.isEnabled()) {
+                    ev.queueDepth = depth;
+                    ev.queueCapacity = queueCapacity;
+                    ev.activeWorkers = active;
+                    ev.completedTasks = completed;
+                    ev.produced = produced.get();
+                    ev.callerRuns = callerRuns.get();
+                    ev.rejected = rejected.get();
+                    ev.commit();
+                }
+                saturation.check(depth, produced.get(), callerRuns.get());
             } catch (Throwable ignore) {
                 // Keep sampling lightweight
             }
         }, 0, 100, TimeUnit.MILLISECONDS);
 
-        AtomicInteger produced = new AtomicInteger();
-        AtomicInteger consumed = new AtomicInteger();
-        AtomicInteger callerRuns = new AtomicInteger();
-        AtomicInteger rejected = new AtomicInteger();
-
         // Backpressure strategy: run on caller thread when queue is full
         executor.setRejectedExecutionHandler((r, ex) -> {
+            if (handoff != null && ex.isShutdown() && r instanceof Job job) {
+                handoff.accept(job.task); // raced the shutdown: keep it rather than run it late
+                return;
+            }
             switch (rejectionPolicy.toLowerCase()) {
                 case "callerruns":
                     callerRuns.incrementAndGet();
+                    CALLER_RUNS.inc();
                     r.run();
                     break;
                 case "dropnewest":
                     // Drop the incoming task; count as rejected
                     rejected.incrementAndGet();
+                    REJECTED.inc();
                     // do nothing else
                     break;
                 case "block":
@@ -115,30 +276,32 @@ public class BackpressureRunner {
                 default:
                     // Fallback to CallerRuns
                     callerRuns.incrementAndGet();
+                    CALLER_RUNS.inc();
                     r.run();
             }
-        });Instant endAt = Instant.now().plusSeconds(durationSec);
-        long nanosPerItem = (long) (1_000_000_000.0 / Math.max(1, producerRatePerSec));
-        Random rnd = new Random();
+        });
+        // Open-loop pacing: every task has an intended send time from the schedule, and its response
+        // time is measured from there, so producer stalls show up as latency instead of vanishing.
+        OpenLoopPacer pacer = OpenLoopPacer.fromSystemProperties(RateSchedule.fromSystemProperties(producerRatePerSec, durationSec));
+        long endAt = System.nanoTime() + durationSec * 1_000_000_000L;
+        SplittableRandom payloads = new SplittableRandom(seed); // producer thread only
+        for (Task t : backlog) if (t.id() > nextId.get()) nextId.set(t.id()); // new ids continue after the backlog
+        final Iterator<Task> carried = backlog.iterator();
 
         Thread producer = new Thread(() -> {
-            long next = System.nanoTime();
-            while (Instant.now().isBefore(endAt)) {
+            long origin = pacer.start();
+            long intended;
+            // backlog first, all due at the start; then the paced schedule
+            while (!stopping.get() && (intended = carried.hasNext() ? origin : pacer.awaitNext(endAt)) >= 0) {
+                final long intendedAt = intended;
                 try {
                     produced.incrementAndGet();
-                    { Task task = new Task(nextId.incrementAndGet(), rnd.nextInt(10));
-                    executor.execute(() -> {
-                        try {
-                            Thread.sleep(2 + rnd.nextInt(8));
-                            checksum.addAndGet(task.id());
-                            processedIds.add(task.id());
-                            consumed.incrementAndGet();
-                        } catch (InterruptedException e) {
-                            Thread.currentThread().interrupt();
-                        }
-                    }); }
+                    PRODUCED.inc();
+                    Task task = carried.hasNext() ? carried.next() : new Task(nextId.incrementAndGet(), payloads.nextInt(10));
+                    executor.execute(new Job(task, intendedAt));
                 } catch (RejectedExecutionException rex) {
                     rejected.incrementAndGet();
+                    REJECTED.inc();
                 }
 
                 
@@ -150,14 +313,16 @@ public class BackpressureRunner {
                         java.util.concurrent.locks.LockSupport.parkNanos(backoffNanos);
                     }
                 }
-next += nanosPerItem;
-                long sleepNanos = next - System.nanoTime();
-                if (sleepNanos > 0) {
-                    LockSupport.parkNanos(sleepNanos);
-                } else {
-                    Thread.yield();
-                }
             }
+            // stopped with backlog left: only this thread touches the iterator, so it hands the rest off itself
+            if (handoff != null) while (carried.hasNext()) handoff.accept(carried.next());
+            // slots the run ended behind on never went out: count them, charged at least their wait so far
+            long stoppedAt = Math.max(endAt, System.nanoTime());
+            pacer.skipRemaining(endAt, missedAt -> {
+                MISSED_SENDS.inc();
+                RESPONSE_TIME.record(stoppedAt - missedAt);
+                response.recordNanos(stoppedAt - missedAt);
+            });
         }, "pc-producer");
 
         producer.setDaemon(true);
@@ -169,8 +334,33 @@ next += nanosPerItem;
             Thread.currentThread().interrupt();
         }
 
+        int consumedAtShutdown = consumed.get();
+        stopping.set(true);
         executor.shutdown();
-        if (drain) {
+        if (handoff != null) {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(shutdownDeadlineMillis);
+            try {
+                // queued but unstarted: hand off now instead of making the restart wait for them
+                List<Runnable> queued = new ArrayList<>();
+                workQueue.drainTo(queued); // first, so a producer blocked in put() gets through
+                producer.join(shutdownDeadlineMillis); // at most one caller-run task away from seeing the flag
+                workQueue.drainTo(queued);
+                for (Runnable r : queued) handoff.accept(((Job) r).task);
+                long left = deadline - System.nanoTime();
+                if (!executor.awaitTermination(Math.max(0, left), TimeUnit.NANOSECONDS) || producer.isAlive()) {
+                    // past the deadline: interrupted jobs, the producer's caller-run one included, hand themselves off
+                    producer.interrupt();
+                    for (Runnable r : executor.shutdownNow()) handoff.accept(((Job) r).task);
+                    long graceEnd = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+                    executor.awaitTermination(1, TimeUnit.SECONDS);
+                    producer.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(graceEnd - System.nanoTime())));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                handoff.close();
+            }
+        } else if (drain) {
             // Drain: wait until all tasks are completed
             try {
                 while (!executor.isTerminated()) {
@@ -190,6 +380,15 @@ next += nanosPerItem;
 
         // Stop sampler and publish samples for tests
         _sampler.shutdownNow();
+        try {
+            _sampler.awaitTermination(1, TimeUnit.SECONDS); // let a tick that is dumping finish
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        recorder.close();
+        QUEUE_DEPTH.set(workQueue.size());
+        ACTIVE_WORKERS.set(executor.getActiveCount());
+        PrometheusExporter.writeIfConfigured();
         LAST_SAMPLES = Collections.unmodifiableList(new ArrayList<>(_samples));
 
         // Optional: print simple summary
@@ -200,8 +399,60 @@ next += nanosPerItem;
         }
 
         
+        try {
+            producer.join(1_000); // it accounts for missed sends on its way out
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        LAST_RESPONSE_TIMES = ResponseTimes.of(response, service, pacer);
+        System.out.println("Latency: " + LAST_RESPONSE_TIMES);
         LAST_PROCESSED_IDS = java.util.Collections.unmodifiableList(new java.util.ArrayList<>(processedIds));
         LAST_CHECKSUM = checksum.get();
-return new Metrics(produced.get(), consumed.get(), callerRuns.get(), rejected.get(), workQueue.size(), LAST_SAMPLES.size(), checksum.get(), processedIds.size());
+        int drained = handoff != null ? consumed.get() - consumedAtShutdown : 0;
+        int handedOff = handoff != null ? handoff.handedOff.get() : 0;
+        int lost = handoff != null ? handoff.lost.get() : 0;
+        if (handoff != null) System.out.printf("Shutdown: drained=%d handedOff=%d lost=%d%n", drained, handedOff, lost);
+return new Metrics(produced.get(), consumed.get(), callerRuns.get(), rejected.get(), workQueue.size(), LAST_SAMPLES.size(), checksum.get(), processedIds.size(),
+        drained, handedOff, lost);
+    }
+
+    /**
+     * The run's side of its {@link HandoffSink}. After {@link #close} the sink takes nothing more: a task handed
+     * off late, like one the sink fails to take, is reported and counted as lost instead of silently dropped.
+     */
+    private static final class Handoff {
+        private final HandoffSink sink;
+        final AtomicInteger handedOff = new AtomicInteger();
+        final AtomicInteger lost = new AtomicInteger();
+        private boolean closed; // guarded by this
+
+        Handoff(HandoffSink sink) {
+            this.sink = sink;
+        }
+
+        synchronized void accept(Task task) {
+            if (closed) {
+                lost.incrementAndGet();
+                System.err.println("[BackpressureRunner] task " + task.id() + " lost: handoff sink already closed");
+                return;
+            }
+            try {
+                sink.accept(task);
+                handedOff.incrementAndGet();
+            } catch (Exception e) {
+                lost.incrementAndGet();
+                System.err.println("[BackpressureRunner] handoff of task " + task.id() + " failed: " + e);
+            }
+        }
+
+        synchronized void close() {
+            if (closed) return;
+            closed = true;
+            try {
+                sink.close();
+            } catch (Exception e) {
+                System.err.println("[BackpressureRunner] closing handoff sink failed: " + e);
+            }
+        }
     }
 }
@@ -0,0 +1,43 @@
+package com.example.concurrency.producerconsumer;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collection;
+
+/**
+ * Where a graceful shutdown sends tasks it will not run: still queued when intake stopped, or
+ * interrupted after the shutdown deadline.
+ * <p>
+ * The runner calls it from the shutting-down thread, the producer and workers, one task at a time, and
+ * stops calling it once it has closed the sink. {@link #to(Collection)} feeds another runner in-process
+ * (pass the collection as its backlog), and {@link TaskCheckpoint#writer(Path)} persists the tasks for
+ * the next process.
+ */
+@FunctionalInterface
+public interface HandoffSink extends AutoCloseable {
+
+    void accept(BackpressureRunner.Task task) throws IOException;
+
+    /** Called once after the last task has been handed off. */
+    @Override
+    default void close() throws IOException {}
+
+    /** Adds every task to {@code target}, which must be thread-safe. */
+    static HandoffSink to(Collection<BackpressureRunner.Task> target) {
+        return target::add;
+    }
+
+    /**
+     * Checkpoint writer for -Dcheckpoint.file, or null when unset (the legacy -Ddrain shutdown).
+     * The same file is read back as the next run's backlog, so a rolling restart picks up where it stopped.
+     */
+    static HandoffSink fromSystemProperties() {
+        String file = System.getProperty("checkpoint.file");
+        if (file == null || file.isBlank()) return null;
+        try {
+            return TaskCheckpoint.writer(Path.of(file));
+        } catch (IOException e) {
+            throw new IllegalStateException("cannot open checkpoint " + file, e);
+        }
+    }
+}
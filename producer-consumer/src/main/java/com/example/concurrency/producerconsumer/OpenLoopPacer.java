@@ -0,0 +1,111 @@
+package com.example.concurrency.producerconsumer;
+
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongConsumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Open-loop producer pacing: send times come from the schedule, never from when the last send returned.
+ * each send has an intended time; a producer stalled by caller-runs or a blocking queue catches up by
+ * sending the overdue items back to back, keeping their original intended times
+ * latency measured from the intended time therefore includes the stall (no coordinated omission)
+ * slots still unsent when the run ends are not dropped: {@link #skipRemaining} reports them as missed sends
+ * arrivals are evenly spaced or Poisson (-Dpacing.arrivals=constant|poisson, seeded by -Dpacing.seed)
+ * uses one monotonic clock read per send (System.nanoTime by default), no Instant allocation
+ * single producer thread only
+ */
+final class OpenLoopPacer {
+    /** Sends later than this behind their intended time count as late. */
+    private static final long LATE_NANOS = 1_000_000L;
+
+    private final RateSchedule schedule;
+    private final boolean poisson;
+    private final SplittableRandom rnd;
+    private final LongSupplier clock;
+    private long origin;
+    private long next;
+    private volatile long late;         // single writer (the producer), read after the run
+    private volatile long maxLagNanos;
+    private volatile long missed;
+
+    OpenLoopPacer(RateSchedule schedule, boolean poisson, long seed, LongSupplier clock) {
+        this.schedule = schedule;
+        this.poisson = poisson;
+        this.rnd = new SplittableRandom(seed);
+        this.clock = clock;
+    }
+
+    static OpenLoopPacer fromSystemProperties(RateSchedule schedule) {
+        boolean poisson = "poisson".equals(System.getProperty("pacing.arrivals", "constant").trim().toLowerCase(Locale.ROOT));
+        return new OpenLoopPacer(schedule, poisson, Long.getLong("pacing.seed", 42L), System::nanoTime);
+    }
+
+    /** Starts the schedule now; the first intended time is the returned origin. */
+    long start() {
+        origin = clock.getAsLong();
+        next = origin;
+        return origin;
+    }
+
+    /**
+     * Waits until the next intended send time and returns it, or returns -1 once the intended time or
+     * the clock reaches {@code endAt}. Returns immediately while behind schedule.
+     */
+    long awaitNext(long endAt) {
+        long intended = next;
+        long now = clock.getAsLong();
+        if (intended >= endAt || now >= endAt) return -1;
+        if (intended > now) {
+            do {
+                LockSupport.parkNanos(intended - now); // may wake early: re-check
+                now = clock.getAsLong();
+            } while (intended > now);
+        } else {
+            long lag = now - intended;
+            if (lag > LATE_NANOS) late++;
+            if (lag > maxLagNanos) maxLagNanos = lag;
+        }
+        next = intended + gapNanos(schedule.rateAt(intended - origin));
+        return intended;
+    }
+
+    /**
+     * Accounts for the slots the run ended behind on: every intended time before {@code endAt} that
+     * {@link #awaitNext} never returned goes to {@code onMissed} and counts as a missed send.
+     * Call once, from the producer, after the last {@code awaitNext}; returns how many were missed.
+     */
+    long skipRemaining(long endAt, LongConsumer onMissed) {
+        long n = 0;
+        long intended = next;
+        for (; intended < endAt; intended += gapNanos(schedule.rateAt(intended - origin))) {
+            onMissed.accept(intended);
+            n++;
+        }
+        next = intended;
+        missed += n;
+        return n;
+    }
+
+    private long gapNanos(double perSec) {
+        double mean = 1e9 / perSec;
+        // exponential inter-arrival: -ln(1-U) * mean, U in [0,1)
+        return Math.max(1L, Math.round(poisson ? -Math.log(1.0 - rnd.nextDouble()) * mean : mean));
+    }
+
+    /** Sends that went out more than 1ms after their intended time. */
+    long lateSends() {
+        return late;
+    }
+
+    /** Intended sends never issued because the run ended first. */
+    long missedSends() {
+        return missed;
+    }
+
+    /** Largest observed delay between an intended time and the actual send. */
+    long maxLagNanos() {
+        return maxLagNanos;
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.concurrency.producerconsumer;
+
+import java.util.Locale;
+import java.util.TreeMap;
+
+/**
+ * Target send rate (items/sec) as a function of time since the run started.
+ * constant: one rate for the whole run
+ * step: piecewise constant, e.g. {@code 200@0,800@1000,200@2000} (rate@millis)
+ * ramp: linear from one rate to another over the run
+ * selected by -Dpacing.schedule=constant|step|ramp (see {@link #fromSystemProperties})
+ */
+public sealed interface RateSchedule {
+
+    /** Items per second at {@code elapsedNanos} into the run; always > 0. */
+    double rateAt(long elapsedNanos);
+
+    record Constant(double perSec) implements RateSchedule {
+        public Constant {
+            if (!(perSec > 0)) throw new IllegalArgumentException("rate must be > 0: " + perSec);
+        }
+
+        @Override
+        public double rateAt(long elapsedNanos) {
+            return perSec;
+        }
+    }
+
+    /** Rate {@code perSec[i]} from {@code atNanos[i]} on; the first step starts at 0. */
+    record Step(long[] atNanos, double[] perSec) implements RateSchedule {
+        public Step {
+            if (atNanos.length == 0 || atNanos.length != perSec.length || atNanos[0] != 0) {
+                throw new IllegalArgumentException("steps must start at 0 and pair a time with each rate");
+            }
+            for (int i = 0; i < perSec.length; i++) {
+                if (!(perSec[i] > 0)) throw new IllegalArgumentException("rate must be > 0: " + perSec[i]);
+                if (i > 0 && atNanos[i] <= atNanos[i - 1]) throw new IllegalArgumentException("step times must increase");
+            }
+        }
+
+        @Override
+        public double rateAt(long elapsedNanos) {
+            int i = perSec.length - 1;
+            while (i > 0 && atNanos[i] > elapsedNanos) i--;
+            return perSec[i];
+        }
+
+        /** Parses {@code rate@millis,...}; without an {@code @0} step the run starts at {@code initial}. */
+        static Step parse(String spec, double initial) {
+            TreeMap<Long, Double> steps = new TreeMap<>();
+            steps.put(0L, initial);
+            for (String part : spec.split(",")) {
+                if (part.isBlank()) continue;
+                String[] rateAt = part.trim().split("@");
+                long at = rateAt.length > 1 ? Long.parseLong(rateAt[1].trim()) * 1_000_000L : 0L;
+                steps.put(at, Double.parseDouble(rateAt[0].trim()));
+            }
+            long[] at = new long[steps.size()];
+            double[] rate = new double[steps.size()];
+            int i = 0;
+            for (var e : steps.entrySet()) {
+                at[i] = e.getKey();
+                rate[i++] = e.getValue();
+            }
+            return new Step(at, rate);
+        }
+    }
+
+    /** Linear from {@code fromPerSec} to {@code toPerSec} over {@code overNanos}, then flat. */
+    record Ramp(double fromPerSec, double toPerSec, long overNanos) implements RateSchedule {
+        public Ramp {
+            if (!(fromPerSec > 0) || !(toPerSec > 0)) throw new IllegalArgumentException("rates must be > 0");
+        }
+
+        @Override
+        public double rateAt(long elapsedNanos) {
+            if (overNanos <= 0 || elapsedNanos >= overNanos) return toPerSec;
+            return fromPerSec + (toPerSec - fromPerSec) * ((double) Math.max(0, elapsedNanos) / overNanos);
+        }
+    }
+
+    /**
+     * Schedule for a run of {@code durationSec} at base rate {@code perSec}:
+     * -Dpacing.schedule=constant (default) | step (-Dpacing.steps) | ramp (to -Dpacing.ramp.to over the run).
+     */
+    static RateSchedule fromSystemProperties(int perSec, int durationSec) {
+        double base = Math.max(1, perSec);
+        return switch (System.getProperty("pacing.schedule", "constant").trim().toLowerCase(Locale.ROOT)) {
+            case "step" -> Step.parse(System.getProperty("pacing.steps", ""), base);
+            case "ramp" -> new Ramp(base, Math.max(1.0, Double.parseDouble(System.getProperty("pacing.ramp.to", String.valueOf(base)))),
+                    durationSec * 1_000_000_000L);
+            default -> new Constant(base);
+        };
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.concurrency.producerconsumer;
+
+import com.example.concurrency.metrics.ContinuousRecorder;
+
+/**
+ * Decides, per sampler tick, whether a run is saturated enough to dump the JFR ring buffer.
+ * queue full: depth >= -Djfr.trigger.queue.fraction (1.0) of capacity
+ * caller-runs spike: caller runs / produced since the last tick >= -Djfr.trigger.caller.runs.ratio (0.5),
+ * once at least 10 tasks were produced in that tick
+ * single-threaded: only the sampler calls {@link #check}
+ */
+final class SaturationTrigger {
+    private static final int MIN_PRODUCED_PER_TICK = 10;
+
+    private final ContinuousRecorder recorder;
+    private final int queueFullAt;
+    private final double callerRunsRatio;
+    private int lastProduced;
+    private int lastCallerRuns;
+
+    SaturationTrigger(ContinuousRecorder recorder, int queueCapacity) {
+        this.recorder = recorder;
+        double fraction = Double.parseDouble(System.getProperty("jfr.trigger.queue.fraction", "1.0"));
+        this.queueFullAt = Math.max(1, (int) Math.ceil(fraction * queueCapacity));
+        this.callerRunsRatio = Double.parseDouble(System.getProperty("jfr.trigger.caller.runs.ratio", "0.5"));
+    }
+
+    void check(int depth, int produced, int callerRuns) {
+        int dp = produced - lastProduced, dc = callerRuns - lastCallerRuns;
+        lastProduced = produced;
+        lastCallerRuns = callerRuns;
+        if (!recorder.enabled()) return;
+        if (depth >= queueFullAt) {
+            recorder.dump("queue-full", "depth=" + depth + " threshold=" + queueFullAt);
+        } else if (dp >= MIN_PRODUCED_PER_TICK && (double) dc / dp >= callerRunsRatio) {
+            recorder.dump("caller-runs", String.format("ratio=%.2f (%d/%d) threshold=%.2f", (double) dc / dp, dc, dp, callerRunsRatio));
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.concurrency.producerconsumer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compact binary file of handed-off tasks: a 4-byte magic, then id and payload per task as unsigned
+ * LEB128 varints (2-4 bytes a task for typical ids). Written to a temp file and renamed on close, so a
+ * reader sees the previous checkpoint or the complete new one, never half a file.
+ */
+public final class TaskCheckpoint {
+
+    static final int MAGIC = 0x50434B31; // "PCK1"
+
+    private TaskCheckpoint() {}
+
+    /** Sink that appends tasks to a new checkpoint replacing {@code file} when closed. */
+    public static Writer writer(Path file) throws IOException {
+        return new Writer(file.toAbsolutePath());
+    }
+
+    /** Tasks in {@code file}, in the order they were handed off; empty if there is no file. */
+    public static List<BackpressureRunner.Task> read(Path file) throws IOException {
+        List<BackpressureRunner.Task> tasks = new ArrayList<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            int magic = in.readInt();
+            if (magic != MAGIC) throw new IOException("not a task checkpoint: " + file);
+            int first;
+            while ((first = in.read()) >= 0) {
+                int id = readVarInt(in, first);
+                int payload = readVarInt(in, in.read());
+                tasks.add(new BackpressureRunner.Task(id, payload));
+            }
+        } catch (NoSuchFileException e) {
+            return List.of();
+        }
+        return tasks;
+    }
+
+    /** Checkpoint being written; thread-safe. */
+    public static final class Writer implements HandoffSink {
+        private final Path file;
+        private final Path tmp;
+        private final DataOutputStream out;
+        private int count;
+        private boolean closed;
+
+        private Writer(Path file) throws IOException {
+            this.file = file;
+            this.tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)));
+            out.writeInt(MAGIC);
+        }
+
+        @Override
+        public synchronized void accept(BackpressureRunner.Task task) throws IOException {
+            if (closed) throw new IOException("checkpoint already closed: " + file);
+            writeVarInt(out, task.id());
+            writeVarInt(out, task.payload());
+            count++;
+        }
+
+        /** Tasks written so far. */
+        public synchronized int count() {
+            return count;
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            if (closed) return;
+            closed = true;
+            out.close();
+            try {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException atomicUnsupported) {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+    }
+
+    private static void writeVarInt(OutputStream out, int v) throws IOException {
+        while ((v & ~0x7F) != 0) {
+            out.write((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        out.write(v);
+    }
+
+    private static int readVarInt(InputStream in, int b) throws IOException {
+        int v = 0;
+        for (int shift = 0; ; shift += 7) {
+            if (b < 0) throw new EOFException("truncated task checkpoint");
+            if (shift > 28) throw new IOException("malformed varint in task checkpoint");
+            v |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return v;
+            b = in.read();
+        }
+    }
+}
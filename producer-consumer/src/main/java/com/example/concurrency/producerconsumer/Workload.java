@@ -0,0 +1,23 @@
+package com.example.concurrency.producerconsumer;
+
+import java.util.SplittableRandom;
+
+/**
+ * What a consumer does with one {@link BackpressureRunner.Task}: the workload SPI.
+ * <p>
+ * The built-ins and the -Dworkload selection live in {@link Workloads}. A custom workload can be passed to
+ * {@link BackpressureRunner#run(int, int, int, int, Workload)} or named by class in -Dworkload. The
+ * {@code rnd} argument is derived from the run seed and the task id, so a task does the same work whichever
+ * worker (or the caller) runs it, and workers share no generator.
+ */
+@FunctionalInterface
+public interface Workload {
+
+    /** Does the task's work; {@code task.payload()} (0..9) scales it. */
+    void execute(BackpressureRunner.Task task, SplittableRandom rnd) throws InterruptedException;
+
+    /** Generator for {@code taskId} in a run seeded with {@code seed}. */
+    static SplittableRandom randomFor(long seed, int taskId) {
+        return new SplittableRandom(seed * 0x9E3779B97F4A7C15L + taskId);
+    }
+}
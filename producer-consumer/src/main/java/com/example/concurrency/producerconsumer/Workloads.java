@@ -0,0 +1,123 @@
+package com.example.concurrency.producerconsumer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Built-in {@link Workload} profiles, selected by -Dworkload.
+ * <p>
+ * {@code sleep}, the default and the original consumer, sleeps 2-9ms uniformly. {@code cpu} spins
+ * -Dworkload.cpu.iterations (20000) mixing rounds per payload unit and never blocks. {@code io} blocks
+ * for a lognormal service time like a remote call: median -Dworkload.io.median.millis (5), shape
+ * -Dworkload.io.sigma (0.5), scaled by 1 + payload/10. {@code memory} allocates and writes
+ * (1 + payload) x -Dworkload.memory.kb (64) KiB, one store per cache line. {@code mixed} picks one of
+ * these per task by the -Dworkload.mix weights (cpu:1,io:2,memory:1). Any other value is taken as the
+ * fully qualified name of a {@link Workload} class with a no-arg constructor.
+ */
+public final class Workloads {
+    private Workloads() {}
+
+    /** Sink for computed values so the JIT cannot drop the cpu and memory work. */
+    static volatile long sink;
+
+    /** The original consumer: sleep 2..9ms. */
+    public static Workload sleep() {
+        return (task, rnd) -> Thread.sleep(2 + rnd.nextInt(8));
+    }
+
+    public static Workload cpu(int iterationsPerUnit) {
+        return (task, rnd) -> {
+            long x = rnd.nextLong();
+            long n = (long) iterationsPerUnit * (1 + task.payload());
+            for (long i = 0; i < n; i++) {
+                x ^= x << 13; x ^= x >>> 7; x ^= x << 17; // xorshift: cheap, not foldable
+            }
+            sink = x;
+        };
+    }
+
+    public static Workload blockingIo(double medianMillis, double sigma) {
+        return (task, rnd) -> {
+            double ms = medianMillis * Math.exp(sigma * gaussian(rnd)) * (1 + task.payload() / 10.0);
+            TimeUnit.MICROSECONDS.sleep(Math.max(1, Math.round(ms * 1_000)));
+        };
+    }
+
+    public static Workload memory(int kbPerUnit) {
+        return (task, rnd) -> {
+            byte[] buf = new byte[kbPerUnit * 1024 * (1 + task.payload())];
+            byte v = (byte) rnd.nextInt();
+            for (int i = 0; i < buf.length; i += 64) buf[i] = v++;
+            long sum = 0;
+            for (int i = 0; i < buf.length; i += 64) sum += buf[i];
+            sink = sum;
+        };
+    }
+
+    /** Picks one of {@code profiles} per task, with probability proportional to {@code weights}. */
+    public static Workload mixed(List<Workload> profiles, double[] weights) {
+        if (profiles.isEmpty() || profiles.size() != weights.length) {
+            throw new IllegalArgumentException("one weight per profile");
+        }
+        double total = 0;
+        double[] cumulative = new double[weights.length];
+        for (int i = 0; i < weights.length; i++) cumulative[i] = total += Math.max(0, weights[i]);
+        if (!(total > 0)) throw new IllegalArgumentException("weights must add up to more than 0");
+        Workload[] all = profiles.toArray(Workload[]::new);
+        double sum = total;
+        return (task, rnd) -> {
+            double pick = rnd.nextDouble() * sum;
+            int i = 0;
+            while (i < cumulative.length - 1 && pick >= cumulative[i]) i++;
+            all[i].execute(task, rnd);
+        };
+    }
+
+    /** The workload named by -Dworkload (default sleep). */
+    public static Workload fromSystemProperties() {
+        return parse(System.getProperty("workload", "sleep"));
+    }
+
+    static Workload parse(String name) {
+        return switch (name.trim().toLowerCase(Locale.ROOT)) {
+            case "sleep", "" -> sleep();
+            case "cpu" -> cpu(Integer.getInteger("workload.cpu.iterations", 20_000));
+            case "io", "blocking-io" -> blockingIo(
+                    Double.parseDouble(System.getProperty("workload.io.median.millis", "5")),
+                    Double.parseDouble(System.getProperty("workload.io.sigma", "0.5")));
+            case "memory" -> memory(Integer.getInteger("workload.memory.kb", 64));
+            case "mixed" -> mixedFromSpec(System.getProperty("workload.mix", "cpu:1,io:2,memory:1"));
+            default -> instantiate(name.trim());
+        };
+    }
+
+    private static Workload mixedFromSpec(String spec) {
+        List<Workload> profiles = new ArrayList<>();
+        List<Double> weights = new ArrayList<>();
+        for (String part : spec.split(",")) {
+            if (part.isBlank()) continue;
+            String[] kv = part.trim().split(":");
+            if (kv[0].trim().equalsIgnoreCase("mixed")) throw new IllegalArgumentException("mixed cannot contain itself");
+            profiles.add(parse(kv[0]));
+            weights.add(kv.length > 1 ? Double.parseDouble(kv[1].trim()) : 1.0);
+        }
+        return mixed(profiles, weights.stream().mapToDouble(Double::doubleValue).toArray());
+    }
+
+    private static Workload instantiate(String className) {
+        try {
+            return Class.forName(className).asSubclass(Workload.class).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            throw new IllegalArgumentException("unknown workload: " + className, e);
+        }
+    }
+
+    /** Standard normal via Box-Muller (one of the pair). */
+    private static double gaussian(SplittableRandom rnd) {
+        double u = 1.0 - rnd.nextDouble(); // (0,1]
+        return Math.sqrt(-2.0 * Math.log(u)) * Math.cos(2 * Math.PI * rnd.nextDouble());
+    }
+}
@@ -181,4 +181,67 @@ public class BackpressureRunnerTest {
             System.clearProperty("drain");
         }
     }
+
+    @Test
+    @DisplayName("run records into the shared metrics registry")
+    void runRecordsSharedMetrics() {
+        long produced0 = BackpressureRunner.PRODUCED.get();
+        long consumed0 = BackpressureRunner.CONSUMED.get();
+        long timed0 = BackpressureRunner.TASK_TIME.count();
+        var m = BackpressureRunner.run(2, 16, 1, 200);
+        assertTrue(BackpressureRunner.PRODUCED.get() - produced0 >= m.produced());
+        assertTrue(BackpressureRunner.CONSUMED.get() - consumed0 >= m.consumed());
+        assertTrue(BackpressureRunner.TASK_TIME.count() - timed0 >= m.consumed());
+        String text = com.example.concurrency.metrics.PrometheusExporter.scrape(
+                com.example.concurrency.metrics.MetricsRegistry.global());
+        assertTrue(text.contains("# TYPE pc_produced_total counter"), text);
+        assertTrue(text.contains("pc_task_seconds_bucket{le=\"0.01\"}"), text);
+    }
+
+    @Test
+    @DisplayName("saturation dumps the JFR ring buffer with backpressure samples")
+    void saturationDumpsRecording(@org.junit.jupiter.api.io.TempDir java.nio.file.Path dir) throws Exception {
+        System.setProperty("jfr.enabled", "true");
+        System.setProperty("jfr.dir", dir.toString());
+        System.setProperty("backoff.enabled", "false");
+        try {
+            BackpressureRunner.run(1, 2, 1, 5000); // tiny queue: full on every tick
+            java.util.List<java.nio.file.Path> dumps;
+            try (var files = java.nio.file.Files.list(dir)) {
+                dumps = files.toList();
+            }
+            assertEquals(1, dumps.size(), "one dump per interval: " + dumps);
+            String name = dumps.get(0).getFileName().toString();
+            assertTrue(name.startsWith("producer-consumer-queue-full-") || name.startsWith("producer-consumer-caller-runs-"), name);
+            var samples = jdk.jfr.consumer.RecordingFile.readAllEvents(dumps.get(0)).stream()
+                    .filter(e -> e.getEventType().getName().equals("com.example.concurrency.Backpressure"))
+                    .toList();
+            assertFalse(samples.isEmpty(), "custom sampler events are in the dump");
+            assertEquals(2, samples.get(0).getInt("queueCapacity"));
+        } finally {
+            System.setProperty("jfr.enabled", "false"); // back to the build's default for tests
+            System.clearProperty("jfr.dir");
+            System.clearProperty("backoff.enabled");
+        }
+    }
+
+    @Test
+    @DisplayName("Open-loop response times include producer stalls that service times hide")
+    void responseTimesIncludeStalls() {
+        System.setProperty("rejectionPolicy", "Block");
+        System.setProperty("backoff.enabled", "false");
+        try {
+            var m = BackpressureRunner.run(1, 4, 1, 1000); // ~6ms per task on one worker: 6x overload
+            var rt = BackpressureRunner.lastResponseTimes();
+            assertTrue(rt.missedSends() > 0, "the blocked producer ends the run behind schedule: " + rt);
+            assertEquals(1000, m.produced() + rt.missedSends(), 5, "every scheduled slot is sent or counted missed: " + rt);
+            assertTrue(rt.count() > 0 && rt.count() <= m.consumed() + rt.missedSends(), rt.toString());
+            assertTrue(rt.serviceP99Millis() < 20, rt.toString());
+            assertTrue(rt.p99Millis() > 200, "backlog behind the blocked producer counts: " + rt);
+            assertTrue(rt.lateSends() > 0 && rt.maxLagMillis() > 100, rt.toString());
+        } finally {
+            System.clearProperty("rejectionPolicy");
+            System.clearProperty("backoff.enabled");
+        }
+    }
 }
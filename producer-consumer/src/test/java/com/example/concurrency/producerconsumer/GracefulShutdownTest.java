@@ -0,0 +1,170 @@
+package com.example.concurrency.producerconsumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** Graceful shutdown: queued and cut-off tasks are handed off and can be resumed; late ones are counted as lost. */
+public class GracefulShutdownTest {
+
+    private static final Workload SLOW = (task, rnd) -> TimeUnit.MILLISECONDS.sleep(20);
+
+    @Test
+    @DisplayName("Checkpoint round-trips tasks compactly; a missing file is an empty backlog")
+    void checkpointRoundTrip(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("tasks.ckpt");
+        List<BackpressureRunner.Task> tasks = List.of(new BackpressureRunner.Task(1, 0),
+                new BackpressureRunner.Task(300, 9), new BackpressureRunner.Task(Integer.MAX_VALUE, -1));
+        try (TaskCheckpoint.Writer w = TaskCheckpoint.writer(file)) {
+            for (var t : tasks) w.accept(t);
+            assertFalse(Files.exists(file), "only visible once complete");
+        }
+        assertEquals(tasks, TaskCheckpoint.read(file));
+        assertEquals(4 + 2 + 3 + 10, Files.size(file), "varints: small ids take a byte or two");
+        assertEquals(List.of(), TaskCheckpoint.read(dir.resolve("absent.ckpt")));
+
+        Files.writeString(dir.resolve("junk.ckpt"), "not a checkpoint");
+        assertThrows(IOException.class, () -> TaskCheckpoint.read(dir.resolve("junk.ckpt")));
+    }
+
+    @Test
+    @DisplayName("Queued tasks go to the sink; every produced task is consumed or handed off exactly once")
+    void queuedTasksAreHandedOff() {
+        var handed = new ConcurrentLinkedQueue<BackpressureRunner.Task>();
+        System.setProperty("rejectionPolicy", "Block"); // keep the producer off the worker path
+        try {
+            var m = BackpressureRunner.run(1, 64, 1, 300, SLOW, List.of(), HandoffSink.to(handed));
+            assertTrue(m.handedOff() > 0, "slow single worker leaves a queue: " + m);
+            assertEquals(handed.size(), m.handedOff());
+            assertEquals(m.produced(), m.consumed() + m.handedOff(), "nothing lost: " + m);
+            assertEquals(0, m.lost());
+            assertTrue(m.drained() <= 2, "only in-flight work finishes after intake stops: " + m);
+
+            Set<Integer> ids = new HashSet<>(BackpressureRunner.lastProcessedIds());
+            for (var t : handed) assertTrue(ids.add(t.id()), "task " + t.id() + " both ran and was handed off");
+            assertEquals(m.produced(), ids.size());
+        } finally {
+            System.clearProperty("rejectionPolicy");
+        }
+    }
+
+    @Test
+    @DisplayName("In-flight tasks past the deadline are interrupted and handed off, and shutdown stays fast")
+    void deadlineCutsOffLongTasks() {
+        var handed = new ConcurrentLinkedQueue<BackpressureRunner.Task>();
+        Workload stuck = (task, rnd) -> TimeUnit.SECONDS.sleep(30);
+        System.setProperty("shutdown.deadline.millis", "200");
+        System.setProperty("rejectionPolicy", "DropNewest");
+        try {
+            long t0 = System.nanoTime();
+            var m = BackpressureRunner.run(2, 8, 1, 50, stuck, List.of(), HandoffSink.to(handed));
+            long tookMillis = (System.nanoTime() - t0) / 1_000_000;
+            assertTrue(tookMillis < 3_000, "deadline bounds the shutdown, took " + tookMillis + "ms");
+            assertEquals(0, m.consumed());
+            assertEquals(m.produced() - m.rejected(), m.handedOff(), "queued and in-flight all handed off: " + m);
+            assertEquals(0, m.lost());
+        } finally {
+            System.clearProperty("shutdown.deadline.millis");
+            System.clearProperty("rejectionPolicy");
+        }
+    }
+
+    @Test
+    @DisplayName("A producer that outlives the deadline has its late handoffs counted as lost, not dropped")
+    void producerPastDeadlineCountsLost() {
+        var handed = new ConcurrentLinkedQueue<BackpressureRunner.Task>();
+        var closed = new CountDownLatch(1);
+        HandoffSink sink = new HandoffSink() {
+            @Override public void accept(BackpressureRunner.Task task) { handed.add(task); }
+            @Override public void close() { closed.countDown(); }
+        };
+        // a caller-run task ignores the interrupt and only finishes once the sink is closed
+        Workload producerStuck = (task, rnd) -> {
+            if (!Thread.currentThread().getName().equals("pc-producer")) {
+                TimeUnit.MILLISECONDS.sleep(50);
+                return;
+            }
+            while (true) {
+                try {
+                    closed.await();
+                    return;
+                } catch (InterruptedException ignored) {
+                    // keep the producer busy past the deadline
+                }
+            }
+        };
+        List<BackpressureRunner.Task> backlog = new ArrayList<>();
+        for (int id = 1; id <= 10; id++) backlog.add(new BackpressureRunner.Task(id, 0));
+        System.setProperty("shutdown.deadline.millis", "200");
+        try {
+            long t0 = System.nanoTime();
+            var m = BackpressureRunner.run(1, 1, 1, 1, producerStuck, backlog, sink);
+            long tookMillis = (System.nanoTime() - t0) / 1_000_000;
+            assertTrue(tookMillis < 5_000, "a stuck producer only costs the deadline and its grace, took " + tookMillis + "ms");
+            assertTrue(m.callerRuns() > 0, "the producer ran a task itself: " + m);
+            assertTrue(m.lost() > 0, "backlog the producer never submitted arrived after close: " + m);
+            assertEquals(handed.size(), m.handedOff());
+            assertEquals(backlog.size(), m.consumed() + m.handedOff() + m.lost(), "every task accounted for: " + m);
+        } finally {
+            System.clearProperty("shutdown.deadline.millis");
+        }
+    }
+
+    @Test
+    @DisplayName("A second runner resumes the handed-off backlog before new work")
+    void anotherRunnerResumesBacklog() {
+        var handed = new ConcurrentLinkedQueue<BackpressureRunner.Task>();
+        System.setProperty("rejectionPolicy", "Block");
+        try {
+            var first = BackpressureRunner.run(1, 64, 1, 300, SLOW, List.of(), HandoffSink.to(handed));
+            assertTrue(first.handedOff() > 0);
+            List<BackpressureRunner.Task> backlog = List.copyOf(handed);
+            int maxId = backlog.stream().mapToInt(BackpressureRunner.Task::id).max().orElseThrow();
+
+            System.setProperty("drain", "true");
+            var second = BackpressureRunner.run(2, 128, 1, 20, (t, r) -> { }, backlog, null);
+            List<Integer> ids = BackpressureRunner.lastProcessedIds();
+            for (var t : backlog) assertTrue(ids.contains(t.id()), "backlog task " + t.id() + " ran");
+            assertTrue(ids.stream().filter(id -> id > maxId).count() > 0, "new ids continue after the backlog");
+            assertEquals(second.produced(), second.consumed());
+        } finally {
+            System.clearProperty("rejectionPolicy");
+            System.clearProperty("drain");
+        }
+    }
+
+    @Test
+    @DisplayName("-Dcheckpoint.file carries work across a restart")
+    void checkpointFileAcrossRestart(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("pc.ckpt");
+        System.setProperty("checkpoint.file", file.toString());
+        System.setProperty("rejectionPolicy", "Block");
+        try {
+            var first = BackpressureRunner.run(1, 64, 1, 300, SLOW);
+            List<BackpressureRunner.Task> saved = TaskCheckpoint.read(file);
+            assertEquals(first.handedOff(), saved.size());
+            assertTrue(saved.size() > 0);
+
+            var second = BackpressureRunner.run(4, 256, 1, 1, (t, r) -> { });
+            List<Integer> ids = BackpressureRunner.lastProcessedIds();
+            for (var t : saved) assertTrue(ids.contains(t.id()), "checkpointed task " + t.id() + " ran after restart");
+            assertEquals(second.handedOff(), TaskCheckpoint.read(file).size(), "checkpoint rewritten on shutdown");
+        } finally {
+            System.clearProperty("checkpoint.file");
+            System.clearProperty("rejectionPolicy");
+        }
+    }
+}
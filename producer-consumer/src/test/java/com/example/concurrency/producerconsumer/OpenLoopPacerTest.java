@@ -0,0 +1,104 @@
+package com.example.concurrency.producerconsumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/** Open-loop pacing: intended times survive stalls; schedules and arrivals follow their rates. */
+public class OpenLoopPacerTest {
+
+    private static final long MS = 1_000_000L;
+
+    @Test
+    @DisplayName("A stalled producer catches up with the original intended times, not new ones")
+    void stallKeepsIntendedTimes() {
+        AtomicLong now = new AtomicLong(0);
+        var pacer = new OpenLoopPacer(new RateSchedule.Constant(1_000), false, 1, now::get); // every 1ms
+        pacer.start();
+        assertEquals(0, pacer.awaitNext(Long.MAX_VALUE));
+
+        now.set(50 * MS); // producer stalled 50ms (caller-runs, blocked put)
+        for (int i = 1; i <= 50; i++) {
+            assertEquals(i * MS, pacer.awaitNext(Long.MAX_VALUE), "overdue send " + i + " keeps its slot");
+        }
+        assertEquals(48, pacer.lateSends(), "sends more than 1ms behind their slot");
+        assertEquals(49 * MS, pacer.maxLagNanos());
+    }
+
+    @Test
+    @DisplayName("awaitNext stops at the end of the run, by schedule or by clock")
+    void stopsAtEnd() {
+        AtomicLong now = new AtomicLong(0);
+        var pacer = new OpenLoopPacer(new RateSchedule.Constant(1_000), false, 1, now::get);
+        pacer.start();
+        now.set(2 * MS);
+        assertEquals(0, pacer.awaitNext(3 * MS));
+        assertEquals(1 * MS, pacer.awaitNext(3 * MS));
+        assertEquals(2 * MS, pacer.awaitNext(3 * MS));
+        assertEquals(-1, pacer.awaitNext(3 * MS), "next slot is at the end");
+
+        long origin = pacer.start();
+        now.set(10 * MS);
+        assertEquals(-1, pacer.awaitNext(origin + 5 * MS), "clock is past the end");
+        var missed = new java.util.ArrayList<Long>();
+        assertEquals(5, pacer.skipRemaining(origin + 5 * MS, missed::add), "the unsent backlog is counted, not dropped");
+        assertEquals(java.util.List.of(origin, origin + MS, origin + 2 * MS, origin + 3 * MS, origin + 4 * MS), missed);
+        assertEquals(5, pacer.missedSends());
+        assertEquals(0, pacer.skipRemaining(origin + 5 * MS, missed::add), "counted once");
+    }
+
+    @Test
+    @DisplayName("Real clock: constant pacing sleeps until each intended time")
+    void paceAgainstRealClock() {
+        var pacer = new OpenLoopPacer(new RateSchedule.Constant(200), false, 1, System::nanoTime); // 5ms
+        long origin = pacer.start();
+        long last = 0;
+        for (int i = 0; i < 10; i++) {
+            last = pacer.awaitNext(Long.MAX_VALUE);
+            assertTrue(System.nanoTime() >= last, "never sends early");
+        }
+        assertEquals(45 * MS, last - origin);
+    }
+
+    @Test
+    @DisplayName("Poisson arrivals are seeded and average the scheduled rate")
+    void poissonArrivals() {
+        AtomicLong now = new AtomicLong(0);
+        var a = new OpenLoopPacer(new RateSchedule.Constant(1_000), true, 7, now::get);
+        var b = new OpenLoopPacer(new RateSchedule.Constant(1_000), true, 7, now::get);
+        long originA = a.start(), originB = b.start();
+        now.set(Long.MAX_VALUE / 2); // always behind from here: no parking
+        long lastA = 0, lastB = 0;
+        for (int i = 0; i <= 10_000; i++) {
+            lastA = a.awaitNext(Long.MAX_VALUE) - originA;
+            lastB = b.awaitNext(Long.MAX_VALUE) - originB;
+        }
+        assertEquals(lastA, lastB, "same seed, same arrivals");
+        assertEquals(1.0, lastA / 10_000.0 / MS, 0.05, "mean gap ~1ms");
+    }
+
+    @Test
+    @DisplayName("Step and ramp schedules change the rate over the run")
+    void stepAndRamp() {
+        var step = RateSchedule.Step.parse("800@1000,200@2000", 100);
+        assertEquals(100, step.rateAt(0));
+        assertEquals(800, step.rateAt(1_500 * MS));
+        assertEquals(200, step.rateAt(5_000 * MS));
+
+        var ramp = new RateSchedule.Ramp(100, 300, 1_000 * MS);
+        assertEquals(100, ramp.rateAt(0));
+        assertEquals(200, ramp.rateAt(500 * MS), 1e-9);
+        assertEquals(300, ramp.rateAt(2_000 * MS));
+
+        AtomicLong now = new AtomicLong(0);
+        var pacer = new OpenLoopPacer(ramp, false, 1, now::get);
+        long origin = pacer.start();
+        now.set(999 * MS); // behind the whole schedule, still inside the run
+        int sends = 0;
+        while (pacer.awaitNext(origin + 1_000 * MS) >= 0) sends++;
+        assertEquals(200, sends, 5, "area under a 100->300/s ramp over 1s");
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.concurrency.producerconsumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/** Workload SPI: seeded per-task randomness, built-in profiles and selection by property. */
+public class WorkloadsTest {
+
+    /** Used by name through -Dworkload. */
+    public static final class Counting implements Workload {
+        static final AtomicInteger CALLS = new AtomicInteger();
+
+        @Override
+        public void execute(BackpressureRunner.Task task, java.util.SplittableRandom rnd) {
+            CALLS.incrementAndGet();
+        }
+    }
+
+    @Test
+    @DisplayName("Per-task generators depend only on seed and task id")
+    void perTaskRandomIsReproducible() {
+        assertEquals(Workload.randomFor(42, 7).nextLong(), Workload.randomFor(42, 7).nextLong());
+        assertNotEquals(Workload.randomFor(42, 7).nextLong(), Workload.randomFor(42, 8).nextLong());
+        assertNotEquals(Workload.randomFor(42, 7).nextLong(), Workload.randomFor(43, 7).nextLong());
+    }
+
+    @Test
+    @DisplayName("Default sleep profile keeps the original 2-9ms service time")
+    void defaultSleepRange() throws Exception {
+        Workload w = Workloads.fromSystemProperties();
+        for (int id = 0; id < 5; id++) {
+            long t0 = System.nanoTime();
+            w.execute(new BackpressureRunner.Task(id, 0), Workload.randomFor(42, id));
+            long ms = (System.nanoTime() - t0) / 1_000_000;
+            assertTrue(ms >= 2 && ms < 40, "took " + ms + "ms");
+        }
+    }
+
+    @Test
+    @DisplayName("CPU and memory profiles compute the same result for the same task")
+    void cpuAndMemoryAreDeterministic() throws Exception {
+        for (Workload w : List.of(Workloads.cpu(1_000), Workloads.memory(4))) {
+            var task = new BackpressureRunner.Task(3, 5);
+            w.execute(task, Workload.randomFor(1, 3));
+            long first = Workloads.sink;
+            w.execute(task, Workload.randomFor(1, 3));
+            assertEquals(first, Workloads.sink);
+        }
+    }
+
+    @Test
+    @DisplayName("Mixed profile picks by weight, reproducibly per task")
+    void mixedFollowsWeights() throws Exception {
+        var picks = new ConcurrentHashMap<String, AtomicInteger>();
+        Workload a = (t, r) -> picks.computeIfAbsent("a", k -> new AtomicInteger()).incrementAndGet();
+        Workload b = (t, r) -> picks.computeIfAbsent("b", k -> new AtomicInteger()).incrementAndGet();
+        Workload mixed = Workloads.mixed(List.of(a, b), new double[]{1, 3});
+        for (int id = 0; id < 10_000; id++) mixed.execute(new BackpressureRunner.Task(id, 0), Workload.randomFor(9, id));
+        assertEquals(0.25, picks.get("a").get() / 10_000.0, 0.02);
+
+        var again = new ConcurrentHashMap<String, AtomicInteger>();
+        Workload a2 = (t, r) -> again.computeIfAbsent("a", k -> new AtomicInteger()).incrementAndGet();
+        Workload b2 = (t, r) -> again.computeIfAbsent("b", k -> new AtomicInteger()).incrementAndGet();
+        Workload mixed2 = Workloads.mixed(List.of(a2, b2), new double[]{1, 3});
+        for (int id = 0; id < 10_000; id++) mixed2.execute(new BackpressureRunner.Task(id, 0), Workload.randomFor(9, id));
+        assertEquals(picks.get("a").get(), again.get("a").get(), "same seed, same picks");
+    }
+
+    @Test
+    @DisplayName("-Dworkload selects built-ins and custom classes; the runner uses it")
+    void selectionByProperty() {
+        assertThrows(IllegalArgumentException.class, () -> Workloads.parse("no.such.Workload"));
+        System.setProperty("workload", Counting.class.getName());
+        System.setProperty("drain", "true");
+        try {
+            int before = Counting.CALLS.get();
+            var m = BackpressureRunner.run(2, 16, 1, 200);
+            assertEquals(m.consumed(), Counting.CALLS.get() - before);
+            assertTrue(m.consumed() > 100, "instant workload keeps up: " + m);
+        } finally {
+            System.clearProperty("workload");
+            System.clearProperty("drain");
+        }
+    }
+
+    @Test
+    @DisplayName("Same seed gives the same payload sequence across runs")
+    void payloadsAreSeeded() {
+        var first = new java.util.concurrent.CopyOnWriteArrayList<Integer>();
+        var second = new java.util.concurrent.CopyOnWriteArrayList<Integer>();
+        BackpressureRunner.run(1, 64, 1, 50, (t, r) -> { if (t.id() <= 20) first.add(t.id() * 10 + t.payload()); });
+        BackpressureRunner.run(1, 64, 1, 50, (t, r) -> { if (t.id() <= 20) second.add(t.id() * 10 + t.payload()); });
+        first.sort(null);
+        second.sort(null);
+        assertEquals(20, first.size());
+        assertEquals(first, second);
+    }
+}